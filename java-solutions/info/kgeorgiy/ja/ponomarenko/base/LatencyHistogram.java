@@ -0,0 +1,96 @@
+package info.kgeorgiy.ja.ponomarenko.base;
+
+/**
+ * Histogram of latencies with logarithmic buckets.
+ * Each power of two is split into {@code 64} linear sub-buckets,
+ * so recorded values are kept with relative error below {@code 2%}.
+ * Recording is not thread-safe, histograms of different threads should be combined with {@link #add}.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long max;
+
+    /**
+     * Records a value.
+     *
+     * @param value non-negative value to record
+     */
+    public void record(long value) {
+        counts[index(Math.max(0, value))]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values recorded by other histogram.
+     *
+     * @param other histogram to add
+     */
+    public synchronized void add(LatencyHistogram other) {
+        synchronized (other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * Returns number of recorded values.
+     *
+     * @return number of recorded values
+     */
+    public synchronized long count() {
+        return count;
+    }
+
+    /**
+     * Returns maximum recorded value.
+     *
+     * @return maximum recorded value, {@code 0} if no values were recorded
+     */
+    public synchronized long max() {
+        return max;
+    }
+
+    /**
+     * Returns value at the given percentile.
+     *
+     * @param percentile percentile in range {@code [0, 100]}
+     * @return lowest value equivalent to value at the given percentile, {@code 0} if no values were recorded
+     */
+    public synchronized long percentile(double percentile) {
+        final long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(lowestValue(i), max);
+            }
+        }
+        return 0;
+    }
+
+    private static int index(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long lowestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+}
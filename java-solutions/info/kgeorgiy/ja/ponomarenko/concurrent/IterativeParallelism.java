@@ -5,8 +5,7 @@ import info.kgeorgiy.java.advanced.concurrent.ScalarIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
-import java.util.function.BinaryOperator;
-import java.util.function.Predicate;
+import java.util.function.*;
 import java.util.stream.IntStream;
 
 /**
@@ -16,14 +15,20 @@ import java.util.stream.IntStream;
  */
 public class IterativeParallelism implements ScalarIP {
 
+    /**
+     * Number of chunks per thread for {@link Scheduling#DYNAMIC} and {@link Scheduling#GUIDED} scheduling.
+     */
+    private static final int CHUNKS_PER_THREAD = 16;
+
     final private ParallelMapper mapper;
+    final private Scheduling scheduling;
 
     /**
      * Creates a new instance of {@link IterativeParallelism}.
      * Uses dynamic {@link ParallelMapper} to perform calculations.
      */
     public IterativeParallelism() {
-        mapper = null;
+        this(null, Scheduling.STATIC);
     }
 
     /**
@@ -32,7 +37,28 @@ public class IterativeParallelism implements ScalarIP {
      * @param mapper {@link ParallelMapper} to be used
      */
     public IterativeParallelism(ParallelMapper mapper) {
+        this(mapper, Scheduling.STATIC);
+    }
+
+    /**
+     * Creates a new instance of {@link IterativeParallelism}.
+     * Uses dynamic {@link ParallelMapper} to perform calculations.
+     *
+     * @param scheduling values partitioning mode
+     */
+    public IterativeParallelism(Scheduling scheduling) {
+        this(null, scheduling);
+    }
+
+    /**
+     * Creates a new instance of {@link IterativeParallelism}.
+     *
+     * @param mapper     {@link ParallelMapper} to be used, {@code null} for dynamic one
+     * @param scheduling values partitioning mode
+     */
+    public IterativeParallelism(ParallelMapper mapper, Scheduling scheduling) {
         this.mapper = mapper;
+        this.scheduling = Objects.requireNonNull(scheduling);
     }
 
     @Override
@@ -60,6 +86,453 @@ public class IterativeParallelism implements ScalarIP {
         return new CountHandler<T>(threads, Collections.unmodifiableList(values), predicate).process();
     }
 
+    /**
+     * Reduces values in one parallel pass.
+     * Each chunk is folded with {@code accumulator} starting from its own identity,
+     * then chunk results are folded with {@code combiner} starting from another identity,
+     * so mutable accumulators such as maps or heaps are never shared between chunks.
+     *
+     * @param threads     number of concurrent threads
+     * @param values      values to reduce
+     * @param identity    supplier of identities of {@code combiner}
+     * @param accumulator function adding value to partial result
+     * @param combiner    associative function combining partial results
+     * @param <T>         value type
+     * @param <U>         result type
+     * @return reduction result, new identity if no values are given
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T, U> U reduce(int threads, List<? extends T> values, Supplier<? extends U> identity,
+                           BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) throws InterruptedException {
+        return new ReduceHandler<T, U>(threads, Collections.unmodifiableList(values), identity, accumulator, combiner).process();
+    }
+
+    /**
+     * Reduces values with the given monoid in one parallel pass.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to reduce
+     * @param monoid  reduction monoid
+     * @param <T>     value type
+     * @return reduction result, monoid identity if no values are given
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T> T reduce(int threads, List<? extends T> values, Monoid<T> monoid) throws InterruptedException {
+        return reduce(threads, values, monoid.identity(), monoid.operator(), monoid.operator());
+    }
+
+    /**
+     * Maps and reduces values in one parallel pass without materializing mapped values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to reduce
+     * @param lift    mapping function
+     * @param monoid  reduction monoid
+     * @param <T>     value type
+     * @param <R>     result type
+     * @return reduction result, monoid identity if no values are given
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public <T, R> R mapReduce(int threads, List<? extends T> values,
+                              Function<? super T, ? extends R> lift, Monoid<R> monoid) throws InterruptedException {
+        final BinaryOperator<R> operator = monoid.operator();
+        return reduce(threads, values, monoid.identity(), (acc, x) -> operator.apply(acc, lift.apply(x)), operator);
+    }
+
+    /**
+     * Returns maximum of the given {@code int} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to get maximum of
+     * @return maximum of given values
+     *
+     * @throws InterruptedException   if executing thread was interrupted
+     * @throws NoSuchElementException if no values are given
+     */
+    public int maximum(int threads, int[] values) throws InterruptedException {
+        return values[best(threads, values.length, (i, j) -> Integer.compare(values[i], values[j]))];
+    }
+
+    /**
+     * Returns maximum of the given {@code long} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to get maximum of
+     * @return maximum of given values
+     *
+     * @throws InterruptedException   if executing thread was interrupted
+     * @throws NoSuchElementException if no values are given
+     */
+    public long maximum(int threads, long[] values) throws InterruptedException {
+        return values[best(threads, values.length, (i, j) -> Long.compare(values[i], values[j]))];
+    }
+
+    /**
+     * Returns maximum of the given {@code double} values, ordered as by {@link Double#compare}.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to get maximum of
+     * @return maximum of given values
+     *
+     * @throws InterruptedException   if executing thread was interrupted
+     * @throws NoSuchElementException if no values are given
+     */
+    public double maximum(int threads, double[] values) throws InterruptedException {
+        return values[best(threads, values.length, (i, j) -> Double.compare(values[i], values[j]))];
+    }
+
+    /**
+     * Returns minimum of the given {@code int} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to get minimum of
+     * @return minimum of given values
+     *
+     * @throws InterruptedException   if executing thread was interrupted
+     * @throws NoSuchElementException if no values are given
+     */
+    public int minimum(int threads, int[] values) throws InterruptedException {
+        return values[best(threads, values.length, (i, j) -> Integer.compare(values[j], values[i]))];
+    }
+
+    /**
+     * Returns minimum of the given {@code long} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to get minimum of
+     * @return minimum of given values
+     *
+     * @throws InterruptedException   if executing thread was interrupted
+     * @throws NoSuchElementException if no values are given
+     */
+    public long minimum(int threads, long[] values) throws InterruptedException {
+        return values[best(threads, values.length, (i, j) -> Long.compare(values[j], values[i]))];
+    }
+
+    /**
+     * Returns minimum of the given {@code double} values, ordered as by {@link Double#compare}.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to get minimum of
+     * @return minimum of given values
+     *
+     * @throws InterruptedException   if executing thread was interrupted
+     * @throws NoSuchElementException if no values are given
+     */
+    public double minimum(int threads, double[] values) throws InterruptedException {
+        return values[best(threads, values.length, (i, j) -> Double.compare(values[j], values[i]))];
+    }
+
+    /**
+     * Returns sum of the given {@code int} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to sum
+     * @return sum of given values, {@code 0} if no values are given
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public long sum(int threads, int[] values) throws InterruptedException {
+        return longSum(threads, values.length, i -> values[i]);
+    }
+
+    /**
+     * Returns sum of the given {@code long} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to sum
+     * @return sum of given values, {@code 0} if no values are given
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return longSum(threads, values.length, i -> values[i]);
+    }
+
+    /**
+     * Returns sum of the given {@code double} values.
+     *
+     * @param threads number of concurrent threads
+     * @param values  values to sum
+     * @return sum of given values, {@code 0} if no values are given
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return doubleSum(threads, values.length, i -> values[i]);
+    }
+
+    /**
+     * Returns number of {@code int} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads
+     * @param values    values to test
+     * @param predicate test predicate
+     * @return number of values satisfying predicate
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return countIndices(threads, values.length, i -> predicate.test(values[i]));
+    }
+
+    /**
+     * Returns number of {@code long} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads
+     * @param values    values to test
+     * @param predicate test predicate
+     * @return number of values satisfying predicate
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return countIndices(threads, values.length, i -> predicate.test(values[i]));
+    }
+
+    /**
+     * Returns number of {@code double} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads
+     * @param values    values to test
+     * @param predicate test predicate
+     * @return number of values satisfying predicate
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return countIndices(threads, values.length, i -> predicate.test(values[i]));
+    }
+
+    /**
+     * Returns histogram of the given {@code int} values.
+     * Values classified outside of {@code [0, buckets)} are not counted.
+     *
+     * @param threads    number of concurrent threads
+     * @param values     values to count
+     * @param buckets    number of histogram buckets
+     * @param classifier function returning bucket index of value
+     * @return number of values in each bucket
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public long[] histogram(int threads, int[] values, int buckets, IntUnaryOperator classifier) throws InterruptedException {
+        return histogramIndices(threads, values.length, buckets, i -> classifier.applyAsInt(values[i]));
+    }
+
+    /**
+     * Returns histogram of the given {@code long} values.
+     * Values classified outside of {@code [0, buckets)} are not counted.
+     *
+     * @param threads    number of concurrent threads
+     * @param values     values to count
+     * @param buckets    number of histogram buckets
+     * @param classifier function returning bucket index of value
+     * @return number of values in each bucket
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public long[] histogram(int threads, long[] values, int buckets, LongToIntFunction classifier) throws InterruptedException {
+        return histogramIndices(threads, values.length, buckets, i -> classifier.applyAsInt(values[i]));
+    }
+
+    /**
+     * Returns histogram of the given {@code double} values.
+     * Values classified outside of {@code [0, buckets)} are not counted.
+     *
+     * @param threads    number of concurrent threads
+     * @param values     values to count
+     * @param buckets    number of histogram buckets
+     * @param classifier function returning bucket index of value
+     * @return number of values in each bucket
+     *
+     * @throws InterruptedException if executing thread was interrupted
+     */
+    public long[] histogram(int threads, double[] values, int buckets, DoubleToIntFunction classifier) throws InterruptedException {
+        return histogramIndices(threads, values.length, buckets, i -> classifier.applyAsInt(values[i]));
+    }
+
+    /**
+     * Returns index of the greatest value in {@code [0, size)} by comparator of indices, the first one of equal.
+     * Like the other helpers below, works on indices, so one implementation serves all array types
+     * and only per-chunk results are boxed.
+     */
+    private int best(int threads, int size, IntBinaryOperator order) throws InterruptedException {
+        checkNotEmpty(size);
+        int best = 0;
+        for (int index : mapRanges(threads, partition(threads, size), (from, to) -> {
+            int max = from;
+            for (int i = from + 1; i < to; i++) {
+                if (order.applyAsInt(i, max) > 0) {
+                    max = i;
+                }
+            }
+            return max;
+        })) {
+            if (order.applyAsInt(index, best) > 0) {
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    private long longSum(int threads, int size, IntToLongFunction value) throws InterruptedException {
+        long sum = 0;
+        for (long partial : mapRanges(threads, partition(threads, size), (from, to) -> {
+            long chunkSum = 0;
+            for (int i = from; i < to; i++) {
+                chunkSum += value.applyAsLong(i);
+            }
+            return chunkSum;
+        })) {
+            sum += partial;
+        }
+        return sum;
+    }
+
+    private double doubleSum(int threads, int size, IntToDoubleFunction value) throws InterruptedException {
+        double sum = 0;
+        for (double partial : mapRanges(threads, partition(threads, size), (from, to) -> {
+            double chunkSum = 0;
+            for (int i = from; i < to; i++) {
+                chunkSum += value.applyAsDouble(i);
+            }
+            return chunkSum;
+        })) {
+            sum += partial;
+        }
+        return sum;
+    }
+
+    private int countIndices(int threads, int size, IntPredicate predicate) throws InterruptedException {
+        final long[] count = histogramIndices(threads, size, 1, i -> predicate.test(i) ? 0 : -1);
+        return (int) count[0];
+    }
+
+    private long[] histogramIndices(int threads, int size, int buckets, IntUnaryOperator classifier) throws InterruptedException {
+        final long[] result = new long[buckets];
+        for (long[] histogram : mapRanges(threads, partition(threads, size), (from, to) -> {
+            final long[] chunkHistogram = new long[buckets];
+            for (int i = from; i < to; i++) {
+                final int bucket = classifier.applyAsInt(i);
+                if (0 <= bucket && bucket < buckets) {
+                    chunkHistogram[bucket]++;
+                }
+            }
+            return chunkHistogram;
+        })) {
+            for (int i = 0; i < buckets; i++) {
+                result[i] += histogram[i];
+            }
+        }
+        return result;
+    }
+
+    private static void checkNotEmpty(int size) {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    int[] partition(int threads, int size) {
+        if (size == 0) {
+            return new int[]{0};
+        }
+        final int workers = Math.min(threads, size);
+        return switch (scheduling) {
+            case STATIC -> uniformPartition(size, workers);
+            case DYNAMIC -> uniformPartition(size, Math.min(workers * CHUNKS_PER_THREAD, size));
+            case GUIDED -> guidedPartition(size, workers);
+        };
+    }
+
+    private static int[] uniformPartition(int size, int chunks) {
+        final int k = size / chunks;
+        final int mod = size % chunks;
+        return IntStream.rangeClosed(0, chunks).map(i -> i * k + Math.min(i, mod)).toArray();
+    }
+
+    private static int[] guidedPartition(int size, int workers) {
+        final int minChunk = Math.max(1, size / (workers * CHUNKS_PER_THREAD));
+        final IntStream.Builder bounds = IntStream.builder().add(0);
+        for (int start = 0; start < size; ) {
+            final int remaining = size - start;
+            start += Math.min(remaining, Math.max(minChunk, (remaining + 2 * workers - 1) / (2 * workers)));
+            bounds.add(start);
+        }
+        return bounds.build().toArray();
+    }
+
+    <A, R> List<R> mapChunks(int threadsCnt, Function<? super A, ? extends R> f, List<A> args) throws InterruptedException {
+        if (args.isEmpty()) {
+            return List.of();
+        }
+        if (mapper != null) {
+            return mapper.map(f, args);
+        }
+        try (ParallelMapperImpl curMapper = new ParallelMapperImpl(Math.min(threadsCnt, args.size()))) {
+            return curMapper.map(f, args);
+        }
+    }
+
+    /**
+     * Applies function to each chunk {@code [bounds[i], bounds[i + 1])} in parallel.
+     *
+     * @return results of chunks in order
+     */
+    <R> List<R> mapRanges(int threads, int[] bounds, RangeFunction<? extends R> function) throws InterruptedException {
+        return mapChunks(threads, range -> function.apply(range.from, range.to), ranges(bounds));
+    }
+
+    void processRanges(int threads, int[] bounds, RangeCalculation calculation) throws InterruptedException {
+        mapChunks(threads, range -> {
+            calculation.calc(range.chunk, range.from, range.to);
+            return null;
+        }, ranges(bounds));
+    }
+
+    private static List<Range> ranges(int[] bounds) {
+        final List<Range> ranges = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            ranges.add(new Range(i, bounds[i], bounds[i + 1]));
+        }
+        return ranges;
+    }
+
+    /**
+     * Partitioning mode of values between threads.
+     */
+    public enum Scheduling {
+        /**
+         * One contiguous chunk of equal size per thread.
+         */
+        STATIC,
+        /**
+         * Many small chunks of equal size, taken by threads as they become free.
+         */
+        DYNAMIC,
+        /**
+         * Chunks of decreasing size, taken by threads as they become free.
+         */
+        GUIDED
+    }
+
+    @FunctionalInterface
+    interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    @FunctionalInterface
+    interface RangeCalculation {
+        void calc(int chunk, int from, int to);
+    }
+
+    private record Range(int chunk, int from, int to) {
+    }
+
     private class BinaryOperationHandler<T> extends CalculationHandler<T, T> {
         final BinaryOperator<T> operator;
 
@@ -84,6 +557,43 @@ public class IterativeParallelism implements ScalarIP {
         }
     }
 
+    private class ReduceHandler<T, U> extends CalculationHandler<T, U> {
+        final Supplier<? extends U> identity;
+        final BiFunction<U, ? super T, U> accumulator;
+        final BinaryOperator<U> combiner;
+
+        ReduceHandler(int threadsCnt, List<T> values, Supplier<? extends U> identity,
+                      BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
+            super(threadsCnt, values);
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        U calc(List<T> chunk) {
+            U result = identity.get();
+            for (T x : chunk) {
+                result = accumulator.apply(result, x);
+            }
+            return result;
+        }
+
+        @Override
+        U merge(List<U> results) {
+            U result = identity.get();
+            for (U x : results) {
+                result = combiner.apply(result, x);
+            }
+            return result;
+        }
+
+        @Override
+        U defaultResult() {
+            return identity.get();
+        }
+    }
+
     private class FindFirstHandler<T> extends CalculationHandler<T, T> {
 
         final Predicate<? super T> predicate;
@@ -145,7 +655,7 @@ public class IterativeParallelism implements ScalarIP {
 
         CalculationHandler(int threadsCnt, List<T> values) {
             this.values = values;
-            this.threadsCnt = Math.min(values.size(), threadsCnt);
+            this.threadsCnt = threadsCnt;
         }
 
         abstract R calc(List<T> chunk);
@@ -160,19 +670,10 @@ public class IterativeParallelism implements ScalarIP {
             if (values.isEmpty()) {
                 return defaultResult();
             }
-            final int k = values.size() / threadsCnt;
-            final int mod = values.size() % threadsCnt;
-            final List<List<T>> list = IntStream.range(0, threadsCnt).mapToObj((i) ->
-                    values.subList(i * k + Math.min(i, mod), Math.min((i + 1) * k + Math.min(i + 1, mod), values.size()))).toList();
-            final List<R> results;
-            if (mapper != null) {
-                results = mapper.map(this::calc, list);
-            } else {
-                try (ParallelMapperImpl curMapper = new ParallelMapperImpl(threadsCnt)) {
-                    results = curMapper.map(this::calc, list);
-                }
-            }
-            return merge(results);
+            final int[] bounds = partition(threadsCnt, values.size());
+            final List<List<T>> list = IntStream.range(0, bounds.length - 1).mapToObj((i) ->
+                    values.subList(bounds[i], bounds[i + 1])).toList();
+            return merge(mapChunks(threadsCnt, this::calc, list));
         }
     }
 }
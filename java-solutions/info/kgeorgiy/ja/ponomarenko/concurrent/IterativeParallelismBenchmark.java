@@ -0,0 +1,143 @@
+package info.kgeorgiy.ja.ponomarenko.concurrent;
+
+import info.kgeorgiy.ja.ponomarenko.base.LatencyHistogram;
+import info.kgeorgiy.ja.ponomarenko.base.Utils;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Benchmark of {@link IterativeParallelism}.
+ * Runs each operation several times after warm-up and reports median and worst time of a run.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class IterativeParallelismBenchmark {
+    private static final String USAGE = "IterativeParallelismBenchmark <mode> <size> <threads> [runs]";
+    private static final int WARMUP = 3;
+    private static final int DEFAULT_RUNS = 10;
+    private static final int HEAVY_SHARE = 8;
+    private static final int HEAVY_COST = 64;
+    /**
+     * Number of loop iterations per unit of cost in {@code skew} mode.
+     */
+    private static final int WORK_UNIT = 16;
+
+    private final int threads;
+    private final int runs;
+
+    private IterativeParallelismBenchmark(int threads, int runs) {
+        this.threads = threads;
+        this.runs = runs;
+    }
+
+    /**
+     * Main method for {@link IterativeParallelismBenchmark}.
+     * Usage: {@code IterativeParallelismBenchmark <mode> <size> <threads> [runs]}
+     * <p>
+     * {@code mode} - {@code primitive}: boxed list against primitive array reductions,
+     * {@code skew}: {@link IterativeParallelism.Scheduling} modes on values with skewed cost
+     * {@code size} - number of values, for example {@code 100000000}
+     * {@code threads} - number of concurrent threads
+     * {@code runs} - number of measured runs of each operation, {@value #DEFAULT_RUNS} by default
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (!Utils.checkArgs(args, 3, 4, USAGE) || !Utils.checkIntegers(args, 1, 2)) {
+            return;
+        }
+        final int size = Integer.parseInt(args[1]);
+        final IterativeParallelismBenchmark benchmark = new IterativeParallelismBenchmark(
+                Integer.parseInt(args[2]), Utils.parseOrDefault(args, 3, DEFAULT_RUNS, "runs"));
+        try {
+            switch (args[0]) {
+                case "primitive" -> benchmark.primitive(size);
+                case "skew" -> benchmark.skew(size);
+                default -> System.err.println("Error: unknown mode " + args[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Compares {@link info.kgeorgiy.java.advanced.concurrent.ScalarIP ScalarIP} reductions of boxed values
+     * with the same reductions of primitive array.
+     */
+    private void primitive(int size) throws InterruptedException {
+        final int[] array = new Random(1).ints(size).toArray();
+        final List<Integer> boxed = boxedCopy(array);
+        final IterativeParallelism ip = new IterativeParallelism();
+        measure("boxed max", () -> ip.maximum(threads, boxed, Integer::compare));
+        measure("int[] max", () -> ip.maximum(threads, array));
+        measure("boxed count", () -> ip.count(threads, boxed, x -> x % 3 == 0));
+        measure("int[] count", () -> ip.count(threads, array, x -> x % 3 == 0));
+    }
+
+    /**
+     * Compares scheduling modes when values in one part of the array are much more expensive:
+     * {@value #HEAVY_SHARE}th part of values costs {@value #HEAVY_COST} times more than the rest.
+     */
+    private void skew(int size) throws InterruptedException {
+        final int[] costs = new int[size];
+        final int heavy = Math.max(1, size / HEAVY_SHARE);
+        for (int i = 0; i < size; i++) {
+            costs[i] = i < heavy ? HEAVY_COST : 1;
+        }
+        final IntPredicate work = cost -> {
+            long hash = cost;
+            for (int i = 0; i < cost * WORK_UNIT; i++) {
+                hash = hash * 31 + i;
+            }
+            return hash == 0;
+        };
+        for (IterativeParallelism.Scheduling scheduling : IterativeParallelism.Scheduling.values()) {
+            final IterativeParallelism ip = new IterativeParallelism(scheduling);
+            measure(scheduling.toString(), () -> ip.count(threads, costs, work));
+        }
+    }
+
+    /**
+     * Returns list of distinct boxed values, as {@link List#of} or streams would produce for big values.
+     */
+    private static List<Integer> boxedCopy(int[] array) {
+        final Integer[] boxed = new Integer[array.length];
+        for (int i = 0; i < array.length; i++) {
+            boxed[i] = array[i];
+        }
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return boxed[index];
+            }
+
+            @Override
+            public int size() {
+                return boxed.length;
+            }
+        };
+    }
+
+    private void measure(String name, Operation operation) throws InterruptedException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+        final LatencyHistogram times = new LatencyHistogram();
+        Object result = null;
+        for (int i = 0; i < runs; i++) {
+            final long start = System.nanoTime();
+            result = operation.run();
+            times.record(System.nanoTime() - start);
+        }
+        System.out.printf("%-12s p50: %9.3f ms, p99: %9.3f ms, max: %9.3f ms, result: %s%n",
+                name, times.percentile(50) / 1e6, times.percentile(99) / 1e6, times.max() / 1e6, result);
+    }
+
+    @FunctionalInterface
+    private interface Operation {
+        Object run() throws InterruptedException;
+    }
+}
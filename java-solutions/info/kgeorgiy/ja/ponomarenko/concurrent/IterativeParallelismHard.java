@@ -1,12 +1,11 @@
 package info.kgeorgiy.ja.ponomarenko.concurrent;
 
 import info.kgeorgiy.java.advanced.concurrent.ListIP;
+import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of {@link ListIP} interface.
@@ -15,86 +14,97 @@ import java.util.stream.Collectors;
  * @author Ponomarenko Ilya
  */
 public class IterativeParallelismHard extends IterativeParallelism implements ListIP {
-    @Override
-    public String join(int threads, List<?> values) throws InterruptedException {
-        return new JoinHandler<>(threads, values).process();
+    /**
+     * Creates a new instance of {@link IterativeParallelismHard}.
+     * Uses dynamic {@link ParallelMapper} to perform calculations.
+     */
+    public IterativeParallelismHard() {
     }
 
-    @Override
-    public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return new FilterHandler<T>(threads, Collections.unmodifiableList(values), predicate).process();
+    /**
+     * Creates a new instance of {@link IterativeParallelismHard}.
+     * Uses dynamic {@link ParallelMapper} to perform calculations.
+     *
+     * @param scheduling values partitioning mode
+     */
+    public IterativeParallelismHard(Scheduling scheduling) {
+        super(scheduling);
     }
 
-    @Override
-    public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
-        return Collections.unmodifiableList(new MapHandler<>(threads, values, f).process());
+    /**
+     * Creates a new instance of {@link IterativeParallelismHard}.
+     *
+     * @param mapper     {@link ParallelMapper} to be used, {@code null} for dynamic one
+     * @param scheduling values partitioning mode
+     */
+    public IterativeParallelismHard(ParallelMapper mapper, Scheduling scheduling) {
+        super(mapper, scheduling);
     }
 
-    private class JoinHandler<T> extends CalculationHandler<T, String> {
-        JoinHandler(int threadsCnt, List<T> values) {
-            super(threadsCnt, values);
-        }
-
-        @Override
-        String calc(List<T> chunk) {
-            return chunk.stream().map(Object::toString).collect(Collectors.joining());
-        }
-
-        @Override
-        String merge(List<String> results) {
-            return String.join("", results);
-        }
-
-        @Override
-        String defaultResult() {
-            return "";
-        }
+    @Override
+    public String join(int threads, List<?> values) throws InterruptedException {
+        final List<StringBuilder> chunks = mapRanges(threads, partition(threads, values.size()), (from, to) -> {
+            final StringBuilder chunk = new StringBuilder();
+            for (Object x : values.subList(from, to)) {
+                chunk.append(x);
+            }
+            return chunk;
+        });
+        final StringBuilder sb = new StringBuilder(chunks.stream().mapToInt(StringBuilder::length).sum());
+        chunks.forEach(sb::append);
+        return sb.toString();
     }
 
-    private abstract class ListOutputHandler<T, R> extends CalculationHandler<T, List<R>> {
-
-        ListOutputHandler(int threadsCnt, List<T> values) {
-            super(threadsCnt, values);
-        }
-
-        @Override
-        List<R> merge(List<List<R>> results) {
-            return results.stream().flatMap(List::stream).toList();
-        }
-
-        @Override
-        List<R> defaultResult() {
-            return List.of();
+    @Override
+    public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        final int size = values.size();
+        final int[] bounds = partition(threads, size);
+        final int chunks = bounds.length - 1;
+        final BitSet[] matches = new BitSet[chunks];
+        processRanges(threads, bounds, (chunk, from, to) -> {
+            final BitSet bits = new BitSet(to - from);
+            int i = 0;
+            for (T x : values.subList(from, to)) {
+                if (predicate.test(x)) {
+                    bits.set(i);
+                }
+                i++;
+            }
+            matches[chunk] = bits;
+        });
+        final int[] offsets = new int[chunks + 1];
+        for (int i = 0; i < chunks; i++) {
+            offsets[i + 1] = offsets[i] + matches[i].cardinality();
         }
+        final Object[] result = new Object[offsets[chunks]];
+        processRanges(threads, bounds, (chunk, from, to) -> {
+            final BitSet bits = matches[chunk];
+            int i = 0;
+            int offset = offsets[chunk];
+            for (T x : values.subList(from, to)) {
+                if (bits.get(i++)) {
+                    result[offset++] = x;
+                }
+            }
+        });
+        return asList(result);
     }
 
-    private class FilterHandler<T> extends ListOutputHandler<T, T> {
-
-        private final Predicate<? super T> predicate;
-
-        FilterHandler(int threadsCnt, List<T> values, Predicate<? super T> predicate) {
-            super(threadsCnt, values);
-            this.predicate = predicate;
-        }
-
-        @Override
-        List<T> calc(List<T> chunk) {
-            return chunk.stream().filter(predicate).toList();
-        }
+    @Override
+    public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
+        final int size = values.size();
+        final Object[] result = new Object[size];
+        processRanges(threads, partition(threads, size), (chunk, from, to) -> {
+            int i = from;
+            for (T x : values.subList(from, to)) {
+                result[i++] = f.apply(x);
+            }
+        });
+        return asList(result);
     }
 
-    private class MapHandler<T, U> extends ListOutputHandler<T, U> {
-
-        private final Function<? super T, ? extends U> f;
-
-        MapHandler(int threadsCnt, List<T> values, Function<? super T, ? extends U> f) {
-            super(threadsCnt, values);
-            this.f = f;
-        }
-
-        @Override
-        List<U> calc(List<T> chunk) {
-            return chunk.stream().map(f).collect(Collectors.toUnmodifiableList());
-        }
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(Object[] values) {
+        return Collections.unmodifiableList(Arrays.asList((T[]) values));
     }
 }
@@ -0,0 +1,194 @@
+package info.kgeorgiy.ja.ponomarenko.concurrent;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+class IterativeParallelismTest {
+    private static final int[] THREADS = {1, 2, 3, 8, 100};
+    private static final int SIZE = 10_000;
+
+    private final Random random = new Random(8448);
+
+    @Test
+    @DisplayName("primitive maximum and minimum")
+    void primitiveMinMax() throws InterruptedException {
+        final int[] ints = random.ints(SIZE).toArray();
+        final long[] longs = random.longs(SIZE).toArray();
+        final double[] doubles = random.doubles(SIZE).toArray();
+        for (int threads : THREADS) {
+            final IterativeParallelism ip = new IterativeParallelism();
+            Assertions.assertEquals(Arrays.stream(ints).max().orElseThrow(), ip.maximum(threads, ints));
+            Assertions.assertEquals(Arrays.stream(ints).min().orElseThrow(), ip.minimum(threads, ints));
+            Assertions.assertEquals(Arrays.stream(longs).max().orElseThrow(), ip.maximum(threads, longs));
+            Assertions.assertEquals(Arrays.stream(longs).min().orElseThrow(), ip.minimum(threads, longs));
+            Assertions.assertEquals(Arrays.stream(doubles).max().orElseThrow(), ip.maximum(threads, doubles));
+            Assertions.assertEquals(Arrays.stream(doubles).min().orElseThrow(), ip.minimum(threads, doubles));
+        }
+    }
+
+    @Test
+    @DisplayName("primitive maximum of no values")
+    void primitiveEmpty() {
+        final IterativeParallelism ip = new IterativeParallelism();
+        Assertions.assertThrows(NoSuchElementException.class, () -> ip.maximum(4, new int[0]));
+        Assertions.assertThrows(NoSuchElementException.class, () -> ip.minimum(4, new long[0]));
+        Assertions.assertThrows(NoSuchElementException.class, () -> ip.maximum(4, new double[0]));
+    }
+
+    @Test
+    @DisplayName("primitive sum and count")
+    void primitiveSumCount() throws InterruptedException {
+        final int[] ints = random.ints(SIZE).toArray();
+        final long[] longs = random.longs(SIZE, -1000, 1000).toArray();
+        final double[] doubles = random.doubles(SIZE).toArray();
+        for (int threads : THREADS) {
+            final IterativeParallelism ip = new IterativeParallelism();
+            Assertions.assertEquals(Arrays.stream(ints).asLongStream().sum(), ip.sum(threads, ints));
+            Assertions.assertEquals(Arrays.stream(longs).sum(), ip.sum(threads, longs));
+            Assertions.assertEquals(Arrays.stream(doubles).sum(), ip.sum(threads, doubles), 1e-6);
+            Assertions.assertEquals(Arrays.stream(ints).filter(x -> x % 3 == 0).count(),
+                    ip.count(threads, ints, x -> x % 3 == 0));
+            Assertions.assertEquals(Arrays.stream(longs).filter(x -> x > 0).count(),
+                    ip.count(threads, longs, x -> x > 0));
+            Assertions.assertEquals(Arrays.stream(doubles).filter(x -> x < 0.25).count(),
+                    ip.count(threads, doubles, x -> x < 0.25));
+        }
+        final IterativeParallelism ip = new IterativeParallelism();
+        Assertions.assertEquals(0, ip.sum(4, new int[0]));
+        Assertions.assertEquals(0, ip.count(4, new double[0], x -> true));
+    }
+
+    @Test
+    @DisplayName("primitive histogram")
+    void primitiveHistogram() throws InterruptedException {
+        final int[] ints = random.ints(SIZE, -10, 110).toArray();
+        final long[] expected = new long[10];
+        for (int x : ints) {
+            if (0 <= x && x < 100) {
+                expected[x / 10]++;
+            }
+        }
+        for (int threads : THREADS) {
+            final IterativeParallelism ip = new IterativeParallelism();
+            Assertions.assertArrayEquals(expected, ip.histogram(threads, ints, 10, x -> x < 0 ? -1 : x / 10));
+            Assertions.assertArrayEquals(expected, ip.histogram(threads,
+                    Arrays.stream(ints).asLongStream().toArray(), 10, x -> x < 0 ? -1 : (int) x / 10));
+            Assertions.assertArrayEquals(expected, ip.histogram(threads,
+                    Arrays.stream(ints).asDoubleStream().toArray(), 10, x -> x < 0 ? -1 : (int) x / 10));
+        }
+    }
+
+    @Test
+    @DisplayName("reduce with monoid and mapReduce")
+    void reduce() throws InterruptedException {
+        final List<Integer> values = random.ints(SIZE, -1000, 1000).boxed().toList();
+        final long sum = values.stream().mapToLong(Integer::longValue).sum();
+        for (int threads : THREADS) {
+            final IterativeParallelism ip = new IterativeParallelism();
+            Assertions.assertEquals(sum, ip.mapReduce(threads, values, Integer::longValue, Monoid.of(0L, Long::sum)));
+            Assertions.assertEquals(values.stream().mapToInt(Integer::intValue).max().orElseThrow(),
+                    ip.reduce(threads, values, Monoid.of(Integer.MIN_VALUE, Math::max)));
+        }
+        Assertions.assertEquals(0L, new IterativeParallelism()
+                .mapReduce(4, List.<Integer>of(), Integer::longValue, Monoid.of(0L, Long::sum)));
+    }
+
+    @Test
+    @DisplayName("reduce into mutable accumulators")
+    void reduceMutable() throws InterruptedException {
+        final List<Integer> values = random.ints(SIZE, 0, 50).boxed().toList();
+        final Map<Integer, Long> expected = values.stream()
+                .collect(Collectors.groupingBy(x -> x, Collectors.counting()));
+        for (int threads : THREADS) {
+            final List<Map<Integer, Long>> identities = new ArrayList<>();
+            final Map<Integer, Long> counts = new IterativeParallelism().reduce(threads, values,
+                    () -> {
+                        final Map<Integer, Long> identity = new HashMap<>();
+                        synchronized (identities) {
+                            identities.add(identity);
+                        }
+                        return identity;
+                    },
+                    (map, x) -> {
+                        map.merge(x, 1L, Long::sum);
+                        return map;
+                    },
+                    (a, b) -> {
+                        b.forEach((x, count) -> a.merge(x, count, Long::sum));
+                        return a;
+                    });
+            Assertions.assertEquals(expected, counts);
+            // Fresh identity for each chunk and for merging
+            Assertions.assertEquals(Math.min(threads, SIZE) + 1, identities.size());
+        }
+    }
+
+    @Test
+    @DisplayName("join, filter and map keep order")
+    void listOperations() throws InterruptedException {
+        final List<Integer> values = random.ints(SIZE, -1000, 1000).boxed().toList();
+        final String joined = values.stream().map(Object::toString).collect(Collectors.joining());
+        for (int threads : THREADS) {
+            final IterativeParallelismHard ip = new IterativeParallelismHard();
+            Assertions.assertEquals(joined, ip.join(threads, values));
+            Assertions.assertEquals(values.stream().filter(x -> x % 7 == 0).toList(),
+                    ip.filter(threads, values, x -> x % 7 == 0));
+            Assertions.assertEquals(values.stream().map(x -> x * 2L).toList(), ip.map(threads, values, x -> x * 2L));
+        }
+        Assertions.assertEquals("", new IterativeParallelismHard().join(4, List.of()));
+    }
+
+    @Test
+    @DisplayName("scheduling partitions cover values")
+    void partitions() {
+        for (IterativeParallelism.Scheduling scheduling : IterativeParallelism.Scheduling.values()) {
+            final IterativeParallelism ip = new IterativeParallelism(scheduling);
+            for (int size : new int[]{0, 1, 7, 1000, SIZE}) {
+                for (int threads : THREADS) {
+                    final int[] bounds = ip.partition(threads, size);
+                    Assertions.assertEquals(0, bounds[0]);
+                    Assertions.assertEquals(size, bounds[bounds.length - 1]);
+                    for (int i = 1; i < bounds.length; i++) {
+                        Assertions.assertTrue(bounds[i - 1] < bounds[i], scheduling + " has empty chunk");
+                    }
+                    if (scheduling == IterativeParallelism.Scheduling.STATIC) {
+                        Assertions.assertEquals(Math.min(threads, size), bounds.length - 1);
+                    }
+                }
+            }
+        }
+        final int[] guided = new IterativeParallelism(IterativeParallelism.Scheduling.GUIDED).partition(4, SIZE);
+        Assertions.assertTrue(guided[1] - guided[0] > guided[guided.length - 1] - guided[guided.length - 2],
+                "guided chunks should decrease");
+    }
+
+    @Test
+    @DisplayName("scheduling modes give the same results")
+    void scheduling() throws InterruptedException {
+        final int[] ints = random.ints(SIZE).toArray();
+        final List<Integer> values = Arrays.stream(ints).boxed().toList();
+        try (ParallelMapperImpl mapper = new ParallelMapperImpl(3)) {
+            for (IterativeParallelism.Scheduling scheduling : IterativeParallelism.Scheduling.values()) {
+                for (IterativeParallelismHard ip : List.of(
+                        new IterativeParallelismHard(scheduling), new IterativeParallelismHard(mapper, scheduling))) {
+                    for (int threads : THREADS) {
+                        Assertions.assertEquals(Arrays.stream(ints).max().orElseThrow(), ip.maximum(threads, ints));
+                        Assertions.assertEquals(Collections.max(values), ip.maximum(threads, values, Integer::compare));
+                        Assertions.assertEquals(values.stream().filter(x -> x > 0).count(),
+                                ip.count(threads, values, x -> x > 0));
+                        Assertions.assertEquals(values.stream().map(x -> -x).toList(), ip.map(threads, values, x -> -x));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package info.kgeorgiy.ja.ponomarenko.concurrent;
+
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Associative operation with identity element.
+ * Used by {@link IterativeParallelism} for parallel reductions.
+ *
+ * @param identity supplier of identity element, called for each partial result,
+ *                 so mutable accumulators may be used
+ * @param operator associative operation
+ * @param <T>      type of elements
+ *
+ * @author Ponomarenko Ilya
+ */
+public record Monoid<T>(Supplier<T> identity, BinaryOperator<T> operator) {
+    /**
+     * Creates monoid with immutable identity element.
+     *
+     * @param identity identity element, shared between partial results
+     * @param operator associative operation
+     * @param <T>      type of elements
+     * @return monoid
+     */
+    public static <T> Monoid<T> of(T identity, BinaryOperator<T> operator) {
+        return new Monoid<>(() -> identity, operator);
+    }
+}
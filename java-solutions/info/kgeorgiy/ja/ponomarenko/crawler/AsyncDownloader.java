@@ -0,0 +1,46 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * {@link Downloader} that does not block a thread while download is in progress.
+ *
+ * @author Ponomarenko Ilya
+ */
+public interface AsyncDownloader extends Downloader {
+    /**
+     * Starts download of the document.
+     *
+     * @param url URL of the document
+     * @return future completed with the document or exceptionally with {@link IOException}
+     */
+    CompletableFuture<Document> downloadAsync(String url);
+
+    /**
+     * Downloads document, waiting for {@link #downloadAsync} to complete.
+     *
+     * @param url URL of the document
+     * @return downloaded document
+     * @throws IOException if an error occurred
+     */
+    @Override
+    default Document download(String url) throws IOException {
+        try {
+            return downloadAsync(url).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of URLs.
+ * Size and number of hash functions are chosen for the expected number of URLs and false positive rate.
+ * Bit positions are derived from the 64-bit URL fingerprint by double hashing.
+ * Concurrent additions of the same new URL may both report it as not visited.
+ *
+ * @author Ponomarenko Ilya
+ */
+class BloomFilter implements VisitedSet {
+    private final AtomicLongArray bits;
+    private final long size;
+    private final int hashes;
+
+    /**
+     * Creates a filter.
+     *
+     * @param expected          expected number of URLs
+     * @param falsePositiveRate probability of false positive when filter contains {@code expected} URLs
+     * @throws IllegalArgumentException if {@code expected <= 0} or rate is not in {@code (0, 1)}
+     */
+    BloomFilter(long expected, double falsePositiveRate) throws IllegalArgumentException {
+        if (expected <= 0) {
+            throw new IllegalArgumentException("Expected number of URLs must be positive");
+        }
+        if (!(0 < falsePositiveRate && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1)");
+        }
+        final double ln2 = Math.log(2);
+        final long words = Math.max(1, (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2) / 64));
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter is too large");
+        }
+        bits = new AtomicLongArray((int) words);
+        size = words * 64;
+        hashes = Math.max(1, (int) Math.round((double) size / expected * ln2));
+    }
+
+    @Override
+    public boolean add(String url) {
+        return add(VisitedSet.fingerprint(url));
+    }
+
+    /**
+     * Adds URL fingerprint to the filter.
+     *
+     * @param fingerprint fingerprint to add
+     * @return {@code true} if fingerprint was definitely not in the filter
+     */
+    boolean add(long fingerprint) {
+        final long h1 = fingerprint >>> 32;
+        final long h2 = fingerprint & 0xffffffffL | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            final long bit = Math.floorMod(h1 + i * h2, size);
+            added |= set((int) (bit >>> 6), 1L << bit);
+        }
+        return added;
+    }
+
+    private boolean set(int word, long mask) {
+        long value;
+        do {
+            value = bits.get(word);
+            if ((value & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, value, value | mask));
+        return true;
+    }
+
+    @Override
+    public long bytes() {
+        return size / 8;
+    }
+}
@@ -0,0 +1,144 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Thread-safe append-only list of URLs, kept as length-prefixed UTF-8 bytes in large chunks.
+ * Each URL takes its encoded length plus about ten bytes instead of a {@link String} with its array and collection node.
+ * URLs are decoded on access.
+ *
+ * @author Ponomarenko Ilya
+ */
+class CompactUrls {
+    private static final int CHUNK = 1 << 16;
+    private final List<byte[]> chunks = new ArrayList<>();
+    /**
+     * Chunk index in high and offset in low 32 bits of each URL.
+     */
+    private long[] positions = new long[16];
+    private int size;
+    private byte[] chunk = new byte[0];
+    private int used;
+    private long chunkBytes;
+
+    /**
+     * Appends URL.
+     *
+     * @param url URL to append
+     * @return index of URL
+     */
+    synchronized int add(String url) {
+        final byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+        final int length = lengthSize(bytes.length) + bytes.length;
+        if (used + length > chunk.length) {
+            chunk = new byte[Math.max(CHUNK, length)];
+            chunks.add(chunk);
+            chunkBytes += chunk.length;
+            used = 0;
+        }
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size] = (long) (chunks.size() - 1) << 32 | used;
+        for (int value = bytes.length; ; value >>>= 7) {
+            if (value < 0x80) {
+                chunk[used++] = (byte) value;
+                break;
+            }
+            chunk[used++] = (byte) (value & 0x7f | 0x80);
+        }
+        System.arraycopy(bytes, 0, chunk, used, bytes.length);
+        used += bytes.length;
+        return size++;
+    }
+
+    private static int lengthSize(int length) {
+        int size = 1;
+        while (length >= 0x80) {
+            length >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Returns URL with the given index.
+     *
+     * @param index index of URL
+     * @return URL
+     * @throws IndexOutOfBoundsException if there is no such URL
+     */
+    synchronized String get(int index) throws IndexOutOfBoundsException {
+        Objects.checkIndex(index, size);
+        final byte[] bytes = chunks.get((int) (positions[index] >>> 32));
+        int offset = (int) positions[index];
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            final byte b = bytes[offset++];
+            length |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns number of URLs.
+     *
+     * @return number of URLs
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns memory used by the list.
+     *
+     * @return size of chunks and positions in bytes
+     */
+    synchronized long bytes() {
+        return chunkBytes + 8L * positions.length;
+    }
+
+    /**
+     * Returns compact copy of URLs without the given ones, as a list decoding URLs on access.
+     *
+     * @param excluded indices of URLs to skip
+     * @return unmodifiable list of URLs
+     */
+    synchronized List<String> toList(BitSet excluded) {
+        final CompactUrls kept = new CompactUrls();
+        for (int i = 0; i < size; i++) {
+            if (!excluded.get(i)) {
+                kept.add(get(i));
+            }
+        }
+        return new UrlList(kept);
+    }
+
+    private static class UrlList extends AbstractList<String> implements RandomAccess {
+        private final CompactUrls urls;
+
+        UrlList(CompactUrls urls) {
+            this.urls = urls;
+        }
+
+        @Override
+        public String get(int index) {
+            return urls.get(index);
+        }
+
+        @Override
+        public int size() {
+            return urls.size();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Outcome of one page of a streamed crawl.
+ *
+ * @param url   URL of the page
+ * @param depth depth the page was reached at, {@code 1} for the start page
+ * @param links links of the page, {@code null} if the page is at the last depth or failed
+ * @param error error of the page, {@code null} if the page was downloaded
+ * @author Ponomarenko Ilya
+ */
+public record CrawlEvent(String url, int depth, List<String> links, IOException error) {
+    /**
+     * Checks whether the page was downloaded.
+     *
+     * @return {@code true} if there is no error
+     */
+    public boolean isDownloaded() {
+        return error == null;
+    }
+}
@@ -0,0 +1,383 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of crawl progress, allowing to resume the crawl after restart.
+ * Each line is one of
+ * <ul>
+ *     <li>{@code V remaining url} - URL was reached with the given remaining depth</li>
+ *     <li>{@code D remaining url} - URL was downloaded and its links were visited with the given remaining depth</li>
+ *     <li>{@code E url message} - URL failed with the given message</li>
+ * </ul>
+ * Fields are separated by tabs. Remaining depths of URLs are kept in {@link DiskIndex}, rebuilt from the log on open,
+ * so the heap does not grow with the number of URLs.
+ * Log is periodically replaced by a checkpoint without records superseded by later ones,
+ * so its size is proportional to the number of URLs rather than to the number of records.
+ * Records are flushed every {@value #FLUSH_INTERVAL} records or every second,
+ * records not flushed before a crash are lost, so the corresponding pages are downloaded again.
+ * URLs waiting for download beyond the in-memory limit of the crawl are {@link #spill spilled}
+ * to a scratch file and read back in batches, as the frontier is rebuilt from the log on resume.
+ *
+ * @author Ponomarenko Ilya
+ */
+class CrawlJournal implements AutoCloseable {
+    private static final String FILE = "journal.log";
+    private static final String TEMP_FILE = "journal.tmp";
+    private static final String INDEX_FILE = "journal.idx";
+    private static final String SPILL_FILE = "frontier.log";
+    private static final String SPILL_READ_FILE = "frontier.read";
+    private static final int FLUSH_INTERVAL = 1024;
+    private static final long FLUSH_PERIOD = TimeUnit.SECONDS.toNanos(1);
+    private final Path file;
+    private final Path tempFile;
+    private final long checkpointInterval;
+    /**
+     * Remaining depths of URLs, both read from the log and recorded since.
+     * Remaining depth links were visited with is raised only after the record is written.
+     */
+    final DiskIndex index;
+    /**
+     * Error messages of URLs read from the log.
+     */
+    final Map<String, String> errors = new HashMap<>();
+    private final Path spillFile;
+    private final Path spillReadFile;
+    private BufferedWriter writer;
+    private BufferedWriter spillWriter;
+    /**
+     * Number of URLs written to spill file since it was last taken for reading.
+     */
+    private long spillWritten;
+    /**
+     * Reader of spill file taken for reading, {@code null} if there is none.
+     */
+    private BufferedReader spillReader;
+    private int unflushed;
+    private long flushed = System.nanoTime();
+    private long records;
+
+    /**
+     * Opens journal in the given directory, reading its contents if it exists.
+     *
+     * @param directory          directory to keep journal in
+     * @param checkpointInterval number of records between checkpoints
+     * @throws IOException if journal can't be read or opened for writing
+     */
+    CrawlJournal(Path directory, long checkpointInterval) throws IOException {
+        Files.createDirectories(directory);
+        file = directory.resolve(FILE);
+        tempFile = directory.resolve(TEMP_FILE);
+        spillFile = directory.resolve(SPILL_FILE);
+        spillReadFile = directory.resolve(SPILL_READ_FILE);
+        this.checkpointInterval = checkpointInterval;
+        index = new DiskIndex(directory.resolve(INDEX_FILE));
+        try {
+            if (Files.exists(file)) {
+                dropTornRecord(file);
+                read(file, (record, line) -> {
+                    switch (record.type()) {
+                        case "V" -> index.raise(record.url(), record.remaining());
+                        case "D" -> index.complete(record.url(), record.remaining());
+                        default -> errors.put(record.url(), record.message());
+                    }
+                });
+            }
+            Files.deleteIfExists(spillReadFile);
+            spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            closeOnError();
+            throw e;
+        } catch (UncheckedIOException e) {
+            closeOnError();
+            throw e.getCause();
+        }
+    }
+
+    private void closeOnError() throws IOException {
+        try {
+            if (spillWriter != null) {
+                closeSpill();
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Truncates record written partially during crash, so it is neither read nor continued by new records.
+     */
+    private static void dropTornRecord(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer last = ByteBuffer.allocate(1);
+            long end = channel.size();
+            while (end > 0) {
+                last.clear();
+                channel.read(last, end - 1);
+                if (last.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            channel.truncate(end);
+        }
+    }
+
+    private static void read(Path file, RecordHandler handler) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final Record record = Record.parse(line);
+                if (record != null) {
+                    handler.handle(record, line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes URLs read from the log which were reached with greater remaining depth than their links were visited with
+     * to the action one by one, without keeping them in memory.
+     * Only the record with the greatest remaining depth of URL is taken, so each URL is passed once.
+     * Should be called before new records are written.
+     *
+     * @param action receiver of URLs to download again
+     * @throws IOException if log can't be read
+     */
+    synchronized void pending(Consumer<String> action) throws IOException {
+        read(file, (record, line) -> {
+            final String url = record.url();
+            if ("V".equals(record.type()) && !errors.containsKey(url)
+                    && record.remaining() == index.get(url) && index.done(url) < record.remaining()) {
+                action.accept(url);
+            }
+        });
+    }
+
+    /**
+     * Writes URL waiting for download to spill file.
+     *
+     * @param url URL
+     * @throws IOException if URL can't be written
+     */
+    synchronized void spill(String url) throws IOException {
+        spillWriter.write(url);
+        spillWriter.newLine();
+        spillWritten++;
+    }
+
+    /**
+     * Reads back URLs {@link #spill spilled} earlier, in order they were spilled.
+     * Spill file is taken for reading as a whole and replaced by an empty one, so URLs spilled meanwhile are kept.
+     *
+     * @param limit maximum number of URLs to read
+     * @return up to {@code limit} spilled URLs, fewer only if there are no more
+     * @throws IOException if spill file can't be read
+     */
+    synchronized List<String> unspill(int limit) throws IOException {
+        final List<String> urls = new ArrayList<>();
+        while (urls.size() < limit) {
+            if (spillReader == null) {
+                if (spillWritten == 0) {
+                    break;
+                }
+                spillWriter.close();
+                Files.move(spillFile, spillReadFile, StandardCopyOption.REPLACE_EXISTING);
+                spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+                spillWritten = 0;
+                spillReader = Files.newBufferedReader(spillReadFile, StandardCharsets.UTF_8);
+            }
+            final String url = spillReader.readLine();
+            if (url == null) {
+                spillReader.close();
+                spillReader = null;
+                Files.delete(spillReadFile);
+            } else {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Returns URLs of downloaded pages recorded in the log.
+     *
+     * @param excluded URLs to skip
+     * @return distinct URLs of downloaded pages
+     * @throws IOException if log can't be read
+     */
+    synchronized List<String> pages(Set<String> excluded) throws IOException {
+        flush();
+        final List<String> pages = new ArrayList<>();
+        final VisitedSet added = VisitedSet.fingerprints(FLUSH_INTERVAL);
+        read(file, (record, line) -> {
+            final String url = record.url();
+            if ("D".equals(record.type()) && !excluded.contains(url) && added.add(url)) {
+                pages.add(url);
+            }
+        });
+        return pages;
+    }
+
+    /**
+     * Records that URL was reached with the given remaining depth.
+     *
+     * @param url       URL
+     * @param remaining remaining depth
+     * @throws IOException if record can't be written
+     */
+    synchronized void visited(String url, int remaining) throws IOException {
+        append("V\t" + remaining + "\t" + url);
+    }
+
+    /**
+     * Records that URL was downloaded and its links were visited.
+     *
+     * @param url       URL
+     * @param remaining remaining depth links were visited with
+     * @throws IOException if record can't be written
+     */
+    synchronized void downloaded(String url, int remaining) throws IOException {
+        append("D\t" + remaining + "\t" + url);
+        index.complete(url, remaining);
+    }
+
+    /**
+     * Records that URL failed.
+     *
+     * @param url URL
+     * @param e   error
+     * @throws IOException if record can't be written
+     */
+    synchronized void failed(String url, IOException e) throws IOException {
+        append("E\t" + url + "\t" + singleLine(e.getMessage()));
+    }
+
+    private static String singleLine(String message) {
+        return message == null ? "" : message.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Writes record, making checkpoint every {@code checkpointInterval} records.
+     * Checkpoint is made under the journal lock, so it is made once and no records are written meanwhile.
+     */
+    private void append(String record) throws IOException {
+        writer.write(record);
+        writer.newLine();
+        if (++unflushed >= FLUSH_INTERVAL || System.nanoTime() - flushed >= FLUSH_PERIOD) {
+            flush();
+        }
+        if (++records >= checkpointInterval) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Flushes records to the file.
+     *
+     * @throws IOException if records can't be written
+     */
+    synchronized void flush() throws IOException {
+        writer.flush();
+        unflushed = 0;
+        flushed = System.nanoTime();
+    }
+
+    /**
+     * Replaces log with records which are not superseded by later ones:
+     * visits with greater remaining depth than links were visited with, downloads with the greatest one and errors.
+     * Remaining depth of visited links is raised after the download record is written,
+     * so each dropped record is covered by a written one.
+     */
+    private void checkpoint() throws IOException {
+        writer.close();
+        try (BufferedWriter checkpoint = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            read(file, (record, line) -> {
+                final boolean keep = switch (record.type()) {
+                    case "V" -> record.remaining() > index.done(record.url());
+                    case "D" -> record.remaining() >= index.done(record.url());
+                    default -> true;
+                };
+                if (keep) {
+                    checkpoint.write(line);
+                    checkpoint.newLine();
+                }
+            });
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        unflushed = 0;
+        records = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            try {
+                closeSpill();
+            } finally {
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes spill files, as spilled URLs are pending in the log.
+     */
+    private void closeSpill() throws IOException {
+        try {
+            spillWriter.close();
+            if (spillReader != null) {
+                spillReader.close();
+            }
+        } finally {
+            Files.deleteIfExists(spillFile);
+            Files.deleteIfExists(spillReadFile);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordHandler {
+        void handle(Record record, String line) throws IOException;
+    }
+
+    private record Record(String type, int remaining, String url, String message) {
+        /**
+         * Parses log line.
+         *
+         * @return parsed record, {@code null} for torn record written during crash
+         */
+        static Record parse(String line) {
+            final String[] parts = line.split("\t", 3);
+            try {
+                return switch (parts[0]) {
+                    case "V", "D" -> new Record(parts[0], Integer.parseInt(parts[1]), parts[2], null);
+                    case "E" -> new Record(parts[0], 0, parts[1], parts.length > 2 ? parts[2] : "");
+                    default -> null;
+                };
+            } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+class CrawlJournalTest {
+    private static final long CHECKPOINT_INTERVAL = 1 << 16;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("journal resumes after torn record")
+    void tornRecord() throws IOException {
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            journal.visited("http://a.com/", 3);
+            journal.visited("http://b.com/", 2);
+            journal.downloaded("http://a.com/", 3);
+            journal.failed("http://c.com/", new IOException("Not\nfound"));
+        }
+        Files.writeString(directory.resolve("journal.log"), "V\t5\thttp://torn.com/",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            Assertions.assertEquals(List.of("http://b.com/"), pending(journal));
+            Assertions.assertEquals(Map.of("http://c.com/", "Not found"), journal.errors);
+            Assertions.assertEquals(0, journal.index.get("http://torn.com/"));
+            Assertions.assertEquals(3, journal.index.done("http://a.com/"));
+            journal.visited("http://d.com/", 1);
+        }
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            Assertions.assertEquals(List.of("http://b.com/", "http://d.com/"), pending(journal));
+            Assertions.assertEquals(List.of("http://a.com/"), journal.pages(journal.errors.keySet()));
+        }
+    }
+
+    @Test
+    @DisplayName("URL reached again is pending once")
+    void pendingOnce() throws IOException {
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            journal.visited("http://a.com/", 1);
+            journal.visited("http://b.com/", 1);
+            journal.visited("http://a.com/", 3);
+            journal.downloaded("http://b.com/", 1);
+            journal.visited("http://b.com/", 2);
+        }
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            Assertions.assertEquals(List.of("http://a.com/", "http://b.com/"), pending(journal));
+        }
+    }
+
+    @Test
+    @DisplayName("checkpoint keeps pending URLs")
+    void checkpoint() throws IOException {
+        try (CrawlJournal journal = new CrawlJournal(directory, 16)) {
+            for (int i = 0; i < 100; i++) {
+                journal.visited("http://a.com/" + i, 2);
+                if (i % 2 == 0) {
+                    journal.downloaded("http://a.com/" + i, 2);
+                }
+            }
+        }
+        try (CrawlJournal journal = new CrawlJournal(directory, 16)) {
+            final List<String> pending = pending(journal);
+            Assertions.assertEquals(50, pending.size());
+            Assertions.assertTrue(pending.stream().allMatch(url -> Integer.parseInt(url.substring(13)) % 2 == 1));
+        }
+    }
+
+    @Test
+    @DisplayName("spilled URLs are read back in order")
+    void spill() throws IOException {
+        final List<String> expected = new ArrayList<>();
+        final List<String> actual = new ArrayList<>();
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            Assertions.assertEquals(List.of(), journal.unspill(10));
+            for (int i = 0; i < 10_000; i++) {
+                final String url = "http://a.com/" + i;
+                journal.spill(url);
+                expected.add(url);
+                if (i % 1000 == 999) {
+                    actual.addAll(journal.unspill(700));
+                }
+            }
+            List<String> batch;
+            while (!(batch = journal.unspill(700)).isEmpty()) {
+                Assertions.assertTrue(batch.size() <= 700);
+                actual.addAll(batch);
+            }
+            journal.spill("http://b.com/");
+        }
+        Assertions.assertEquals(expected, actual);
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("frontier")),
+                    "spill files should be deleted on close");
+        }
+    }
+
+    private static List<String> pending(CrawlJournal journal) throws IOException {
+        final List<String> pending = new ArrayList<>();
+        journal.pending(pending::add);
+        return pending;
+    }
+}
@@ -0,0 +1,211 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.ja.ponomarenko.base.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of {@link WebCrawler}: per-host download latency, queue lengths, pool utilization, errors and cache hits.
+ * Can be published to the platform MBean server.
+ * Latency is tracked for at most about {@value #MAX_HOSTS} hosts,
+ * downloads of further hosts are recorded under {@value #OTHER_HOSTS}.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class CrawlerMetrics implements CrawlerMetricsMXBean {
+    private static final String DOMAIN = "info.kgeorgiy.ja.ponomarenko.crawler";
+    private static final AtomicInteger IDS = new AtomicInteger();
+    private static final int SUMMARY_HOSTS = 10;
+    private static final int MAX_HOSTS = 1000;
+    private static final String OTHER_HOSTS = "(other hosts)";
+    private final ThreadPoolExecutor downloadExecutor;
+    private final ThreadPoolExecutor extractExecutor;
+    private final IntSupplier hostQueue;
+    private final ConcurrentMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private ObjectName name;
+
+    /**
+     * Creates metrics of crawler with the given pools.
+     *
+     * @param downloadExecutor download pool
+     * @param extractExecutor  extract pool
+     * @param hostQueue        number of downloads held by per-host limit
+     */
+    CrawlerMetrics(ThreadPoolExecutor downloadExecutor, ThreadPoolExecutor extractExecutor, IntSupplier hostQueue) {
+        this.downloadExecutor = downloadExecutor;
+        this.extractExecutor = extractExecutor;
+        this.hostQueue = hostQueue;
+    }
+
+    /**
+     * Records finished download.
+     *
+     * @param host    host of the page
+     * @param latency download time in nanoseconds
+     */
+    void downloaded(String host, long latency) {
+        downloads.increment();
+        LatencyHistogram histogram = latencies.get(host);
+        if (histogram == null) {
+            // Size check races with other hosts, so a few more hosts may be tracked
+            histogram = latencies.computeIfAbsent(latencies.size() < MAX_HOSTS ? host : OTHER_HOSTS,
+                    h -> new LatencyHistogram());
+        }
+        synchronized (histogram) {
+            histogram.record(latency);
+        }
+    }
+
+    /**
+     * Records error.
+     *
+     * @param e error
+     */
+    void failed(Exception e) {
+        errors.computeIfAbsent(e.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    /**
+     * Records lookup in link cache.
+     *
+     * @param hit whether page was found
+     */
+    void cached(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    @Override
+    public long getDownloads() {
+        return downloads.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        return errors.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum(), Long::sum, TreeMap::new));
+    }
+
+    @Override
+    public int getDownloadQueue() {
+        return downloadExecutor.getQueue().size();
+    }
+
+    @Override
+    public int getExtractQueue() {
+        return extractExecutor.getQueue().size();
+    }
+
+    @Override
+    public int getHostQueue() {
+        return hostQueue.getAsInt();
+    }
+
+    @Override
+    public int getActiveDownloaders() {
+        return downloadExecutor.getActiveCount();
+    }
+
+    @Override
+    public int getActiveExtractors() {
+        return extractExecutor.getActiveCount();
+    }
+
+    @Override
+    public Map<String, Double> getHostLatencyMedian() {
+        return hostLatency(histogram -> histogram.percentile(50) / 1e6);
+    }
+
+    @Override
+    public Map<String, Double> getHostLatency99() {
+        return hostLatency(histogram -> histogram.percentile(99) / 1e6);
+    }
+
+    private Map<String, Double> hostLatency(Function<LatencyHistogram, Double> statistic) {
+        return latencies.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> statistic.apply(e.getValue()), Double::sum, TreeMap::new));
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Returns summary with totals and the slowest hosts by 99th percentile of latency.
+     *
+     * @return summary
+     */
+    @Override
+    public String getSummary() {
+        final StringBuilder summary = new StringBuilder();
+        summary.append(String.format("Downloads: %d, errors: %d %s%n", getDownloads(), getErrors(), getErrorsByType()));
+        summary.append(String.format("Queues: download %d, extract %d, host %d; active: downloaders %d, extractors %d%n",
+                getDownloadQueue(), getExtractQueue(), getHostQueue(), getActiveDownloaders(), getActiveExtractors()));
+        if (getCacheHits() + getCacheMisses() > 0) {
+            summary.append(String.format("Cache: hits %d, misses %d%n", getCacheHits(), getCacheMisses()));
+        }
+        latencies.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyHistogram> e) -> e.getValue().percentile(99)).reversed())
+                .limit(SUMMARY_HOSTS)
+                .forEach(e -> summary.append(String.format("Host %s: %d downloads, p50: %.3f ms, p99: %.3f ms, max: %.3f ms%n",
+                        e.getKey(), e.getValue().count(), e.getValue().percentile(50) / 1e6,
+                        e.getValue().percentile(99) / 1e6, e.getValue().max() / 1e6)));
+        return summary.toString();
+    }
+
+    /**
+     * Registers metrics in the platform MBean server.
+     * Registration errors are reported and otherwise ignored.
+     */
+    synchronized void register() {
+        try {
+            name = new ObjectName(DOMAIN + ":type=WebCrawler,id=" + IDS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Warning: can't register metrics: " + e.getMessage());
+            name = null;
+        }
+    }
+
+    /**
+     * Unregisters metrics from the platform MBean server, if they were registered.
+     */
+    synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Warning: can't unregister metrics: " + e.getMessage());
+        }
+        name = null;
+    }
+}
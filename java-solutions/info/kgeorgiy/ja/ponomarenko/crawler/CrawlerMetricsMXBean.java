@@ -0,0 +1,101 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link CrawlerMetrics}.
+ *
+ * @author Ponomarenko Ilya
+ */
+public interface CrawlerMetricsMXBean {
+    /**
+     * Returns number of finished downloads, successful or not.
+     *
+     * @return number of downloads
+     */
+    long getDownloads();
+
+    /**
+     * Returns number of failed downloads and extractions.
+     *
+     * @return number of errors
+     */
+    long getErrors();
+
+    /**
+     * Returns number of errors by simple name of exception class.
+     *
+     * @return number of errors by exception type
+     */
+    Map<String, Long> getErrorsByType();
+
+    /**
+     * Returns number of downloads waiting for a download thread.
+     *
+     * @return download queue length
+     */
+    int getDownloadQueue();
+
+    /**
+     * Returns number of documents waiting for an extractor thread.
+     *
+     * @return extract queue length
+     */
+    int getExtractQueue();
+
+    /**
+     * Returns number of downloads waiting for a free slot of their host.
+     *
+     * @return number of downloads held by per-host limit
+     */
+    int getHostQueue();
+
+    /**
+     * Returns number of download threads running tasks.
+     *
+     * @return number of active downloaders
+     */
+    int getActiveDownloaders();
+
+    /**
+     * Returns number of extractor threads running tasks.
+     *
+     * @return number of active extractors
+     */
+    int getActiveExtractors();
+
+    /**
+     * Returns median download latency by host.
+     *
+     * @return median latency in milliseconds by host, hosts beyond the tracked ones are merged
+     */
+    Map<String, Double> getHostLatencyMedian();
+
+    /**
+     * Returns 99th percentile of download latency by host.
+     *
+     * @return 99th percentile of latency in milliseconds by host, hosts beyond the tracked ones are merged
+     */
+    Map<String, Double> getHostLatency99();
+
+    /**
+     * Returns number of pages taken from link cache.
+     *
+     * @return number of cache hits
+     */
+    long getCacheHits();
+
+    /**
+     * Returns number of pages looked up in link cache, but not found.
+     *
+     * @return number of cache misses
+     */
+    long getCacheMisses();
+
+    /**
+     * Returns human-readable summary of metrics.
+     *
+     * @return summary
+     */
+    String getSummary();
+}
@@ -0,0 +1,82 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe table of maximum remaining depths URLs of a crawl were reached with.
+ *
+ * @author Ponomarenko Ilya
+ */
+interface Depths {
+    /**
+     * Returns maximum remaining depth URL was reached with.
+     *
+     * @param url URL
+     * @return remaining depth, {@code 0} if URL was not reached
+     */
+    int get(String url);
+
+    /**
+     * Raises remaining depth of URL, if it is less than the given one.
+     *
+     * @param url       URL
+     * @param remaining remaining depth URL is reached with
+     * @return previous remaining depth, {@code 0} if URL was not reached
+     */
+    int raise(String url, int remaining);
+
+    /**
+     * Returns maximum remaining depth links of URL were visited with, if it is tracked.
+     *
+     * @param url URL
+     * @return remaining depth, {@code 0} if links were not visited or it is not tracked
+     */
+    int done(String url);
+
+    /**
+     * Raises remaining depth links of URL were visited with, if it is tracked and less than the given one.
+     * Remaining depth URL was reached with is raised as well.
+     *
+     * @param url       URL
+     * @param remaining remaining depth links were visited with
+     */
+    void complete(String url, int remaining);
+
+    /**
+     * Creates table backed by the given map, which does not track visited links.
+     *
+     * @param depths map of URLs to remaining depths
+     * @return new table
+     */
+    static Depths of(ConcurrentMap<String, Integer> depths) {
+        return new Depths() {
+            @Override
+            public int get(String url) {
+                return depths.getOrDefault(url, 0);
+            }
+
+            @Override
+            public int raise(String url, int remaining) {
+                while (true) {
+                    final Integer old = depths.putIfAbsent(url, remaining);
+                    if (old == null) {
+                        return 0;
+                    }
+                    if (old >= remaining || depths.replace(url, old, remaining)) {
+                        return old;
+                    }
+                }
+            }
+
+            @Override
+            public int done(String url) {
+                return 0;
+            }
+
+            @Override
+            public void complete(String url, int remaining) {
+                raise(url, remaining);
+            }
+        };
+    }
+}
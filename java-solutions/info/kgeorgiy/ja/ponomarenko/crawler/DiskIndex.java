@@ -0,0 +1,182 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open-addressing table of 64-bit URL fingerprints in memory-mapped file.
+ * Each entry takes {@value #ENTRY} bytes: fingerprint, maximum remaining depth URL was reached with
+ * and maximum remaining depth its links were visited with.
+ * So the heap does not grow with the number of URLs, and cold parts of the table are paged out by the system.
+ * File is a scratch copy, it is created empty, grown twice when half full and deleted on close.
+ * Replaced and closed tables are unmapped at once where the platform allows it,
+ * otherwise their memory is released when they are garbage collected.
+ *
+ * @author Ponomarenko Ilya
+ */
+class DiskIndex implements Depths, AutoCloseable {
+    private static final int ENTRY = 16;
+    private static final int DEPTH = 8;
+    private static final int DONE = 12;
+    private static final int MIN_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = Integer.highestOneBit(Integer.MAX_VALUE / ENTRY);
+    private final Path file;
+    private final Path tempFile;
+    private MappedByteBuffer table;
+    private int capacity = MIN_CAPACITY;
+    private int size;
+
+    /**
+     * Creates empty index, replacing the file if it exists.
+     *
+     * @param file file to keep index in
+     * @throws IOException if file can't be created
+     */
+    DiskIndex(Path file) throws IOException {
+        this.file = file;
+        tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        table = map(file, capacity);
+    }
+
+    private static MappedByteBuffer map(Path file, int capacity) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * ENTRY);
+        }
+    }
+
+    @Override
+    public synchronized int get(String url) {
+        return get(url, DEPTH);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException if index can't be grown
+     */
+    @Override
+    public synchronized int raise(String url, int remaining) throws UncheckedIOException {
+        return raise(url, DEPTH, remaining);
+    }
+
+    @Override
+    public synchronized int done(String url) {
+        return get(url, DONE);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException if index can't be grown
+     */
+    @Override
+    public synchronized void complete(String url, int remaining) throws UncheckedIOException {
+        raise(url, DEPTH, remaining);
+        raise(url, DONE, remaining);
+    }
+
+    private int get(String url, int field) {
+        final long key = key(url);
+        final int at = slot(table, capacity, key);
+        return table.getLong(at) == key ? table.getInt(at + field) : 0;
+    }
+
+    private int raise(String url, int field, int remaining) {
+        final long key = key(url);
+        int at = slot(table, capacity, key);
+        if (table.getLong(at) != key) {
+            if ((size + 1) * 2 > capacity) {
+                grow();
+                at = slot(table, capacity, key);
+            }
+            table.putLong(at, key);
+            size++;
+        }
+        final int old = table.getInt(at + field);
+        if (old < remaining) {
+            table.putInt(at + field, remaining);
+        }
+        return old;
+    }
+
+    private static long key(String url) {
+        // Zero marks empty slot
+        final long fingerprint = VisitedSet.fingerprint(url);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    /**
+     * Returns offset of entry with the given key, or of empty entry it should be put to.
+     */
+    private static int slot(MappedByteBuffer table, int capacity, long key) {
+        final int mask = capacity - 1;
+        for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+            final long current = table.getLong(i * ENTRY);
+            if (current == key || current == 0) {
+                return i * ENTRY;
+            }
+        }
+    }
+
+    private void grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new UncheckedIOException(new IOException("Index is full: " + size + " URLs"));
+        }
+        try {
+            final MappedByteBuffer grown = map(tempFile, capacity * 2);
+            for (int i = 0; i < capacity; i++) {
+                final long key = table.getLong(i * ENTRY);
+                if (key != 0) {
+                    final int at = slot(grown, capacity * 2, key);
+                    grown.putLong(at, key);
+                    grown.putInt(at + DEPTH, table.getInt(i * ENTRY + DEPTH));
+                    grown.putInt(at + DONE, table.getInt(i * ENTRY + DONE));
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            unmap(table);
+            table = grown;
+            capacity *= 2;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Unmaps the table, which must not be accessed afterwards.
+     * There is no public API for it, so {@code sun.misc.Unsafe} is used if it is available.
+     */
+    private static void unmap(MappedByteBuffer table) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), table);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // Table is unmapped when it is garbage collected
+        }
+    }
+
+    /**
+     * Unmaps and deletes the index, it must not be used afterwards.
+     *
+     * @throws IOException if file can't be deleted
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (table != null) {
+            unmap(table);
+            table = null;
+        }
+        Files.deleteIfExists(file);
+    }
+}
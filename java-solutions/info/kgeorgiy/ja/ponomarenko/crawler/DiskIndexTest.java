@@ -0,0 +1,42 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class DiskIndexTest {
+    private static final int SIZE = 100_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("index keeps depths while growing")
+    void grow() throws IOException {
+        final Path file = directory.resolve("index");
+        try (DiskIndex index = new DiskIndex(file)) {
+            final long initial = Files.size(file);
+            for (int i = 0; i < SIZE; i++) {
+                Assertions.assertEquals(0, index.raise(url(i), i % 5 + 1));
+                if (i % 3 == 0) {
+                    index.complete(url(i), i % 5 + 1);
+                }
+            }
+            Assertions.assertTrue(Files.size(file) > initial, "index should grow");
+            for (int i = 0; i < SIZE; i++) {
+                Assertions.assertEquals(i % 5 + 1, index.get(url(i)));
+                Assertions.assertEquals(i % 3 == 0 ? i % 5 + 1 : 0, index.done(url(i)));
+                Assertions.assertEquals(i % 5 + 1, index.raise(url(i), 1));
+            }
+            Assertions.assertEquals(0, index.get("http://other.com/"));
+        }
+        Assertions.assertFalse(Files.exists(file), "index should be deleted on close");
+    }
+
+    private static String url(int i) {
+        return "http://host" + i % 100 + ".com/" + i;
+    }
+}
@@ -0,0 +1,119 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+/**
+ * Table of remaining depths of 64-bit URL fingerprints in open-addressing arrays.
+ * Like {@link FingerprintSet}, fingerprints are spread between independently locked segments,
+ * each grown separately when it is half full.
+ * Each entry takes 16 bytes: fingerprint, remaining depth URL was reached with
+ * and remaining depth its links were visited with.
+ *
+ * @author Ponomarenko Ilya
+ */
+class FingerprintDepths implements Depths {
+    private static final int SEGMENTS = 64;
+    private static final int MIN_CAPACITY = 16;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Creates empty table.
+     */
+    FingerprintDepths() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public int get(String url) {
+        final long key = key(url);
+        return segment(key).get(key, false);
+    }
+
+    @Override
+    public int raise(String url, int remaining) {
+        final long key = key(url);
+        return segment(key).raise(key, remaining, false);
+    }
+
+    @Override
+    public int done(String url) {
+        final long key = key(url);
+        return segment(key).get(key, true);
+    }
+
+    @Override
+    public void complete(String url, int remaining) {
+        final long key = key(url);
+        final Segment segment = segment(key);
+        synchronized (segment) {
+            segment.raise(key, remaining, false);
+            segment.raise(key, remaining, true);
+        }
+    }
+
+    private static long key(String url) {
+        // Zero marks empty slot
+        final long fingerprint = VisitedSet.fingerprint(url);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private Segment segment(long key) {
+        return segments[(int) (key >>> 58)];
+    }
+
+    private static class Segment {
+        private long[] keys = new long[MIN_CAPACITY];
+        private int[] depths = new int[MIN_CAPACITY];
+        private int[] done = new int[MIN_CAPACITY];
+        private int size;
+
+        synchronized int get(long key, boolean links) {
+            final int i = slot(keys, key);
+            return keys[i] != key ? 0 : links ? done[i] : depths[i];
+        }
+
+        synchronized int raise(long key, int remaining, boolean links) {
+            int i = slot(keys, key);
+            if (keys[i] != key) {
+                if ((size + 1) * 2 > keys.length) {
+                    grow();
+                    i = slot(keys, key);
+                }
+                keys[i] = key;
+                size++;
+            }
+            final int[] values = links ? done : depths;
+            final int old = values[i];
+            if (old < remaining) {
+                values[i] = remaining;
+            }
+            return old;
+        }
+
+        private void grow() {
+            final long[] grownKeys = new long[keys.length * 2];
+            final int[] grownDepths = new int[keys.length * 2];
+            final int[] grownDone = new int[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    final int j = slot(grownKeys, keys[i]);
+                    grownKeys[j] = keys[i];
+                    grownDepths[j] = depths[i];
+                    grownDone[j] = done[i];
+                }
+            }
+            keys = grownKeys;
+            depths = grownDepths;
+            done = grownDone;
+        }
+
+        private static int slot(long[] keys, long key) {
+            final int mask = keys.length - 1;
+            for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key || keys[i] == 0) {
+                    return i;
+                }
+            }
+        }
+    }
+}
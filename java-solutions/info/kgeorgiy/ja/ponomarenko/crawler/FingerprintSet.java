@@ -0,0 +1,94 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+/**
+ * Set of 64-bit URL fingerprints in open-addressing tables of {@code long}.
+ * Fingerprints are spread between independently locked segments by their high bits,
+ * so concurrent insertions rarely contend. Each segment is grown separately when it is half full.
+ *
+ * @author Ponomarenko Ilya
+ */
+class FingerprintSet implements VisitedSet {
+    private static final int SEGMENTS = 64;
+    private static final int MIN_CAPACITY = 16;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Creates a set.
+     *
+     * @param expected expected number of fingerprints
+     */
+    FingerprintSet(int expected) {
+        final int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, 2 * expected / SEGMENTS)) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        return add(VisitedSet.fingerprint(url));
+    }
+
+    /**
+     * Adds fingerprint to the set.
+     *
+     * @param fingerprint fingerprint to add
+     * @return {@code true} if fingerprint was not in the set
+     */
+    boolean add(long fingerprint) {
+        // Zero marks empty slot
+        final long key = fingerprint == 0 ? 1 : fingerprint;
+        return segments[(int) (key >>> 58)].add(key);
+    }
+
+    @Override
+    public long bytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    private static class Segment {
+        private long[] table;
+        private int size;
+
+        Segment(int capacity) {
+            table = new long[capacity];
+        }
+
+        synchronized boolean add(long key) {
+            if (!insert(table, key)) {
+                return false;
+            }
+            if (++size * 2 > table.length) {
+                final long[] grown = new long[table.length * 2];
+                for (long old : table) {
+                    if (old != 0) {
+                        insert(grown, old);
+                    }
+                }
+                table = grown;
+            }
+            return true;
+        }
+
+        private static boolean insert(long[] table, long key) {
+            final int mask = table.length - 1;
+            for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+                if (table[i] == key) {
+                    return false;
+                }
+                if (table[i] == 0) {
+                    table[i] = key;
+                    return true;
+                }
+            }
+        }
+
+        synchronized long bytes() {
+            return 8L * table.length;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler limiting number of tasks running concurrently for one host.
+ * Tasks exceeding the limit wait in per-host queue without occupying executor threads
+ * and are started one by one as tasks of the same host complete.
+ * As each host has at most {@code perHost} tasks in executor queue,
+ * hosts with many tasks do not starve other hosts.
+ * Queue of a host is removed once it has no running and waiting tasks,
+ * so the number of queues is bounded by the number of hosts being downloaded, not visited.
+ *
+ * @author Ponomarenko Ilya
+ */
+class HostLimiter {
+    private final Executor executor;
+    private final int perHost;
+    private final ConcurrentMap<String, HostQueue> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param executor executor to run tasks on
+     * @param perHost  maximum number of running tasks per host
+     */
+    HostLimiter(Executor executor, int perHost) {
+        this.executor = executor;
+        this.perHost = perHost;
+    }
+
+    /**
+     * Runs task on executor as soon as host has a free slot.
+     * If executor rejects the task, it is not run and returned future fails with {@link RejectedExecutionException},
+     * so caller may release resources taken for the task.
+     *
+     * @param host host task belongs to
+     * @param task task to run
+     * @return future completed when the task is complete
+     */
+    CompletableFuture<Void> execute(String host, Runnable task) {
+        return submit(host, () -> CompletableFuture.runAsync(task, executor));
+    }
+
+    /**
+     * Starts asynchronous task as soon as host has a free slot.
+     * The slot is occupied until stage returned by the task completes.
+     * If the task throws an exception, for example {@link RejectedExecutionException} from executor,
+     * the slot is released and returned future fails with this exception.
+     *
+     * @param host host task belongs to
+     * @param task task to start, called without holding any locks
+     * @param <T>  type of task result
+     * @return future completed with task result
+     */
+    <T> CompletableFuture<T> submit(String host, Supplier<? extends CompletionStage<T>> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Supplier<CompletionStage<T>> start = () -> {
+            final CompletionStage<T> stage;
+            try {
+                stage = task.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return result;
+            }
+            return stage.whenComplete((value, e) -> {
+                if (e == null) {
+                    result.complete(value);
+                } else {
+                    result.completeExceptionally(e);
+                }
+            });
+        };
+        // Queue may be removed after lookup, then the task goes to the new one
+        while (!hosts.computeIfAbsent(host, HostQueue::new).add(start)) {
+            Thread.onSpinWait();
+        }
+        return result;
+    }
+
+    /**
+     * Returns number of tasks waiting for a free slot of their host.
+     *
+     * @return number of waiting tasks
+     */
+    int waiting() {
+        return hosts.values().stream().mapToInt(HostQueue::waiting).sum();
+    }
+
+    /**
+     * Returns number of hosts having running or waiting tasks.
+     *
+     * @return number of active hosts
+     */
+    int hosts() {
+        return hosts.size();
+    }
+
+    private class HostQueue {
+        private final String host;
+        private final Queue<Supplier<? extends CompletionStage<?>>> waiting = new ArrayDeque<>();
+        private int running;
+        /**
+         * Number of slots released, but not yet passed to waiting tasks.
+         */
+        private int released;
+        /**
+         * Whether some thread is starting waiting tasks.
+         */
+        private boolean dispatching;
+        /**
+         * Whether the queue is removed from the map, so new tasks should go to a new queue.
+         */
+        private boolean removed;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
+
+        /**
+         * Adds task to the queue or starts it, if host has a free slot.
+         *
+         * @param task task to add
+         * @return {@code false} if the queue was removed and task was not added
+         */
+        boolean add(Supplier<? extends CompletionStage<?>> task) {
+            synchronized (this) {
+                if (removed) {
+                    return false;
+                }
+                if (running >= perHost) {
+                    waiting.add(task);
+                    return true;
+                }
+                running++;
+            }
+            start(task);
+            return true;
+        }
+
+        synchronized int waiting() {
+            return waiting.size();
+        }
+
+        /**
+         * Releases slot of completed task and passes it to the next waiting task.
+         * Tasks completing synchronously call this method from {@link #start},
+         * so only the outermost call starts tasks in a loop, and nested calls just release their slot.
+         */
+        private void next() {
+            synchronized (this) {
+                released++;
+                if (dispatching) {
+                    return;
+                }
+                dispatching = true;
+            }
+            while (true) {
+                final Supplier<? extends CompletionStage<?>> task;
+                synchronized (this) {
+                    if (released == 0) {
+                        dispatching = false;
+                        if (running == 0) {
+                            removed = true;
+                            hosts.remove(host, this);
+                        }
+                        return;
+                    }
+                    released--;
+                    task = waiting.poll();
+                    if (task == null) {
+                        running--;
+                        continue;
+                    }
+                }
+                start(task);
+            }
+        }
+
+        private void start(Supplier<? extends CompletionStage<?>> task) {
+            task.get().whenComplete((value, e) -> next());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+class HostLimiterTest {
+    private static final int PER_HOST = 2;
+    private static final int HOSTS = 50;
+    private static final int TASKS = 20_000;
+
+    @Test
+    @DisplayName("tasks of one host do not exceed the limit")
+    void limit() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final HostLimiter limiter = new HostLimiter(executor, PER_HOST);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(limiter.execute("host", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.onSpinWait();
+                    running.decrementAndGet();
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+            Assertions.assertTrue(maxRunning.get() <= PER_HOST, "running: " + maxRunning.get());
+            Assertions.assertEquals(0, limiter.waiting());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("idle hosts are removed and racing tasks are not lost")
+    void removeIdle() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final ExecutorService submitters = Executors.newFixedThreadPool(4);
+        try {
+            final HostLimiter limiter = new HostLimiter(executor, PER_HOST);
+            final ConcurrentMap<String, AtomicInteger> done = new ConcurrentHashMap<>();
+            final List<CompletableFuture<Void>> futures = IntStream.range(0, TASKS).mapToObj(i -> {
+                final String host = "host" + i % HOSTS;
+                return CompletableFuture.supplyAsync(() -> limiter.execute(host,
+                        () -> done.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet()), submitters)
+                        .thenCompose(future -> future);
+            }).toList();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+            Assertions.assertEquals(TASKS, done.values().stream().mapToInt(AtomicInteger::get).sum());
+            Assertions.assertEquals(0, limiter.hosts());
+        } finally {
+            executor.shutdownNow();
+            submitters.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("synchronous tasks release their host")
+    void synchronous() {
+        final HostLimiter limiter = new HostLimiter(Runnable::run, PER_HOST);
+        final AtomicInteger done = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            limiter.submit("host" + i % 3, () -> CompletableFuture.completedFuture(done.incrementAndGet())).join();
+        }
+        Assertions.assertEquals(1000, done.get());
+        Assertions.assertEquals(0, limiter.hosts());
+    }
+}
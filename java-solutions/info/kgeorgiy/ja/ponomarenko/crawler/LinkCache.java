@@ -0,0 +1,122 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of downloaded pages and their links, shared between crawls.
+ * Pages are kept for a fixed time after download, so changed pages are eventually downloaded again.
+ * Pages downloaded without extracting links are cached as well,
+ * they are hits only for crawls which do not need their links.
+ * Cache is kept in memory only and is lost on restart.
+ * Eviction is plain LRU without frequency-based admission, so a crawl of many new pages evicts popular ones.
+ * Hits and misses are counted over all crawlers sharing the cache,
+ * {@link CrawlerMetricsMXBean#getCacheHits() crawler metrics} count lookups of one crawler.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class LinkCache {
+    private final int maxPages;
+    private final long ttl;
+    private final Map<String, Page> pages;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param maxPages maximum number of cached pages
+     * @param ttl      time to keep page for
+     * @param unit     time unit of ttl
+     * @throws IllegalArgumentException if {@code maxPages <= 0}
+     */
+    public LinkCache(int maxPages, long ttl, TimeUnit unit) throws IllegalArgumentException {
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxPages = maxPages;
+        this.ttl = unit.toNanos(ttl);
+        pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+                return size() > LinkCache.this.maxPages;
+            }
+        };
+    }
+
+    /**
+     * Returns cached page.
+     *
+     * @param url   URL of the page
+     * @param links whether links of the page are required
+     * @return links of the page, empty list if links are not required, {@code null} on miss
+     */
+    List<String> get(String url, boolean links) {
+        Page page;
+        synchronized (pages) {
+            page = pages.get(url);
+            if (page != null && System.nanoTime() - page.expires >= 0) {
+                pages.remove(url);
+                page = null;
+            }
+        }
+        if (page == null || links && page.links == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return links ? page.links : List.of();
+    }
+
+    /**
+     * Caches page.
+     * Page with links already cached is not replaced, so it expires after the time since its first download.
+     *
+     * @param url   URL of the page
+     * @param links links of the page, {@code null} if they were not extracted
+     */
+    void put(String url, List<String> links) {
+        final long now = System.nanoTime();
+        synchronized (pages) {
+            final Page old = pages.get(url);
+            if (old == null || old.links == null && links != null || now - old.expires >= 0) {
+                pages.put(url, new Page(links == null ? null : List.copyOf(links), now + ttl));
+            }
+        }
+    }
+
+    /**
+     * Returns number of pages taken from cache.
+     *
+     * @return number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns number of pages not found in cache.
+     *
+     * @return number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns share of pages taken from cache.
+     *
+     * @return cache hit rate in range {@code [0, 1]}
+     */
+    public double getHitRate() {
+        final long hitsCnt = getHits();
+        final long total = hitsCnt + getMisses();
+        return total == 0 ? 0 : (double) hitsCnt / total;
+    }
+
+    private record Page(List<String> links, long expires) {
+    }
+}
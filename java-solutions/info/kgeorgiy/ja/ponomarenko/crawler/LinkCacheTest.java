@@ -0,0 +1,70 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class LinkCacheTest {
+    private static final List<String> LINKS = List.of("http://a.com/1", "http://a.com/2");
+
+    @Test
+    @DisplayName("cache evicts least recently used page")
+    void lru() {
+        final LinkCache cache = new LinkCache(2, 1, TimeUnit.HOURS);
+        cache.put("http://a.com/", LINKS);
+        cache.put("http://b.com/", LINKS);
+        Assertions.assertEquals(LINKS, cache.get("http://a.com/", true));
+        cache.put("http://c.com/", LINKS);
+        Assertions.assertNull(cache.get("http://b.com/", true));
+        Assertions.assertEquals(LINKS, cache.get("http://a.com/", true));
+        Assertions.assertEquals(LINKS, cache.get("http://c.com/", true));
+        Assertions.assertEquals(3, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    @DisplayName("page without links is a hit only if links are not required")
+    void withoutLinks() {
+        final LinkCache cache = new LinkCache(10, 1, TimeUnit.HOURS);
+        cache.put("http://a.com/", null);
+        Assertions.assertEquals(List.of(), cache.get("http://a.com/", false));
+        Assertions.assertNull(cache.get("http://a.com/", true));
+        cache.put("http://a.com/", LINKS);
+        Assertions.assertEquals(LINKS, cache.get("http://a.com/", true));
+        Assertions.assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("expired page is a miss and is removed")
+    void expired() throws InterruptedException {
+        final LinkCache cache = new LinkCache(10, 1, TimeUnit.MILLISECONDS);
+        cache.put("http://a.com/", LINKS);
+        Thread.sleep(5);
+        Assertions.assertNull(cache.get("http://a.com/", true));
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        cache.put("http://a.com/", List.of());
+        Assertions.assertEquals(List.of(), cache.get("http://a.com/", true));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LinkCache(0, 1, TimeUnit.HOURS));
+    }
+
+    @Test
+    @DisplayName("crawler metrics count cache hits of the crawler")
+    void metrics() {
+        final LinkCache cache = new LinkCache(1000, 1, TimeUnit.HOURS);
+        try (LocalDownloader downloader = new LocalDownloader(100, 5, 3, 0);
+             WebCrawler crawler = new WebCrawler(downloader, 4, 2, 2, WebCrawler.Mode.PIPELINED,
+                     VisitedSet::strings, cache)) {
+            final CrawlerMetricsMXBean metrics = crawler.enableMetrics();
+            final int pages = crawler.download(downloader.url(0), 3).getDownloaded().size();
+            final long downloads = downloader.downloads();
+            Assertions.assertEquals(0, metrics.getCacheHits());
+            Assertions.assertEquals(pages, crawler.download(downloader.url(0), 3).getDownloaded().size());
+            // Only the broken page is downloaded again
+            Assertions.assertEquals(downloads + 1, downloader.downloads());
+            Assertions.assertEquals(pages, metrics.getCacheHits());
+            Assertions.assertTrue(metrics.getSummary().contains("Cache: hits " + pages), metrics.getSummary());
+        }
+    }
+}
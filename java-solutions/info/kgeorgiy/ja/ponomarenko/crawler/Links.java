@@ -0,0 +1,111 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utility class for normalization and grouping of extracted links.
+ *
+ * @author Ponomarenko Ilya
+ */
+final class Links {
+    /**
+     * Key of links without host.
+     */
+    static final String NO_HOST = "";
+
+    private Links() {
+    }
+
+    /**
+     * Returns canonical form of URL: without fragment, with lower-case scheme and host and without default port.
+     * Path and query are kept as is.
+     *
+     * @param url URL to normalize
+     * @return normalized URL, or URL without fragment if it can't be parsed
+     */
+    static String normalize(String url) {
+        final URI uri = parse(url);
+        return uri == null || uri.getHost() == null ? stripFragment(url) : normalize(uri);
+    }
+
+    private static String normalize(URI uri) {
+        final String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        final StringBuilder result = new StringBuilder(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            result.append(uri.getRawUserInfo()).append('@');
+        }
+        result.append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (uri.getPort() != -1 && uri.getPort() != defaultPort(scheme)) {
+            result.append(':').append(uri.getPort());
+        }
+        result.append(uri.getRawPath());
+        if (uri.getRawQuery() != null) {
+            result.append('?').append(uri.getRawQuery());
+        }
+        return result.toString();
+    }
+
+    private static URI parse(String url) {
+        try {
+            final URI uri = new URI(url);
+            return uri.isOpaque() || uri.getScheme() == null ? null : uri;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static String stripFragment(String url) {
+        final int index = url.indexOf('#');
+        return index < 0 ? url : url.substring(0, index);
+    }
+
+    private static int defaultPort(String scheme) {
+        return switch (scheme) {
+            case "http" -> 80;
+            case "https" -> 443;
+            case "ftp" -> 21;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Optionally normalizes links of a document, removes duplicates and groups them by host.
+     * Hosts and links keep order of the first occurrence.
+     *
+     * @param links     links of a document
+     * @param normalize whether to {@link #normalize(String) normalize} links
+     * @return distinct links by lower-case host, links without host are under {@link #NO_HOST}
+     */
+    static Map<String, List<String>> byHost(List<String> links, boolean normalize) {
+        final Set<String> seen = new LinkedHashSet<>();
+        final Map<String, List<String>> hosts = new LinkedHashMap<>();
+        for (String link : links) {
+            final URI uri = parse(link);
+            final String normalized = !normalize ? link
+                    : uri == null || uri.getHost() == null ? stripFragment(link) : normalize(uri);
+            if (seen.add(normalized)) {
+                final String host = uri == null || uri.getHost() == null ? NO_HOST : uri.getHost().toLowerCase(Locale.ROOT);
+                hosts.computeIfAbsent(host, h -> new ArrayList<>()).add(normalized);
+            }
+        }
+        return hosts;
+    }
+
+    /**
+     * Returns distinct links grouped by host.
+     *
+     * @param hosts result of {@link #byHost}
+     * @return all links of all hosts
+     */
+    static List<String> flatten(Map<String, List<String>> hosts) {
+        return hosts.values().stream().flatMap(List::stream).toList();
+    }
+}
@@ -0,0 +1,137 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Downloader of generated site with artificial latency, standing in for network in benchmarks and tests.
+ * Site has {@code pages} pages spread over {@code hosts} hosts, each page links to {@code links} other pages,
+ * and every seventh page also links to {@link #BROKEN broken page}, which fails to download.
+ * Asynchronous downloads complete on a single timer thread, so latency does not occupy threads,
+ * while {@link #blocking() blocking} downloads sleep in the calling thread.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class LocalDownloader implements AsyncDownloader, AutoCloseable {
+    /**
+     * Page that fails to download.
+     */
+    public static final String BROKEN = "http://host0.local/broken";
+    private static final int BROKEN_SHARE = 7;
+    private final int pages;
+    private final int hosts;
+    private final int links;
+    private final long latency;
+    private final LongAdder downloads = new LongAdder();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+        final Thread thread = new Thread(task, "LocalDownloader timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates a downloader of generated site.
+     *
+     * @param pages   number of pages
+     * @param hosts   number of hosts
+     * @param links   number of links of each page
+     * @param latency download latency in milliseconds
+     */
+    public LocalDownloader(int pages, int hosts, int links, long latency) {
+        this.pages = pages;
+        this.hosts = hosts;
+        this.links = links;
+        this.latency = latency;
+    }
+
+    /**
+     * Returns URL of the page.
+     *
+     * @param page page number
+     * @return URL of the page
+     */
+    public String url(int page) {
+        return "http://host" + page % hosts + ".local/" + page;
+    }
+
+    /**
+     * Returns number of downloads started.
+     *
+     * @return number of downloads
+     */
+    public long downloads() {
+        return downloads.sum();
+    }
+
+    /**
+     * Returns view of this downloader which is not {@link AsyncDownloader}, so each download occupies a thread.
+     *
+     * @return blocking downloader
+     */
+    public Downloader blocking() {
+        return this::download;
+    }
+
+    @Override
+    public CompletableFuture<Document> downloadAsync(String url) {
+        downloads.increment();
+        final CompletableFuture<Document> result = new CompletableFuture<>();
+        timer.schedule(() -> {
+            try {
+                result.complete(page(url));
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    @Override
+    public Document download(String url) throws IOException {
+        downloads.increment();
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        }
+        return page(url);
+    }
+
+    private Document page(String url) throws IOException {
+        if (url.equals(BROKEN)) {
+            throw new IOException("Not found: " + url);
+        }
+        final int page;
+        try {
+            page = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Unknown page: " + url);
+        }
+        return () -> {
+            final List<String> result = new ArrayList<>();
+            for (int i = 1; i <= links; i++) {
+                result.add(url((int) (((long) page * links + i) % pages)));
+            }
+            if (page % BROKEN_SHARE == 0) {
+                result.add(BROKEN);
+            }
+            return result;
+        };
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
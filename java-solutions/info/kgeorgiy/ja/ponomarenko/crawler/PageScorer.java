@@ -0,0 +1,39 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+/**
+ * Priority of a page in priority crawl, pages with greater scores are downloaded first.
+ *
+ * @author Ponomarenko Ilya
+ */
+@FunctionalInterface
+public interface PageScorer {
+    /**
+     * Computes score of the page.
+     *
+     * @param url           URL of the page
+     * @param host          host of the page
+     * @param depth         depth the page was reached at, {@code 1} for the start page
+     * @param referrerLinks number of links on the page the URL was found on, {@code 0} for the start page
+     * @return score of the page
+     */
+    double score(String url, String host, int depth, int referrerLinks);
+
+    /**
+     * Returns scorer preferring pages closer to the start, as breadth-first crawl does.
+     *
+     * @return breadth-first scorer
+     */
+    static PageScorer breadthFirst() {
+        return (url, host, depth, referrerLinks) -> -depth;
+    }
+
+    /**
+     * Returns scorer preferring pages closer to the start and then pages found on pages with fewer links,
+     * as links of such pages are usually more relevant.
+     *
+     * @return scorer of focused crawl
+     */
+    static PageScorer focused() {
+        return (url, host, depth, referrerLinks) -> -depth - referrerLinks / (referrerLinks + 1.0);
+    }
+}
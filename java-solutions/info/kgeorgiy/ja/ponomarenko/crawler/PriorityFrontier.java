@@ -0,0 +1,135 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * Queue of pending downloads, started in order of decreasing score.
+ * At most {@code slots} downloads are in progress at once, so better pages found later
+ * overtake worse pages found earlier.
+ * Once {@code pageBudget} downloads succeeded, pending downloads are dropped.
+ * Downloads of a host exceeding {@code hostBudget} are dropped as well.
+ * Start and drop actions are run without holding the lock by a single dispatching thread,
+ * so actions calling {@link #add} or {@link #done} do not recurse.
+ *
+ * @author Ponomarenko Ilya
+ */
+class PriorityFrontier {
+    private final int slots;
+    private final int pageBudget;
+    private final int hostBudget;
+    private final Queue<Pending> queue = new PriorityQueue<>(
+            Comparator.comparingDouble(Pending::score).reversed().thenComparingLong(Pending::order));
+    /**
+     * Number of downloads of host that are in progress or succeeded.
+     */
+    private final Map<String, Integer> hosts = new HashMap<>();
+    private long order;
+    private int running;
+    private int succeeded;
+    /**
+     * Whether queue or counters changed since pending downloads were last dispatched.
+     */
+    private boolean changed;
+    /**
+     * Whether some thread is dispatching pending downloads.
+     */
+    private boolean dispatching;
+
+    /**
+     * Creates a frontier.
+     *
+     * @param slots      maximum number of downloads in progress
+     * @param pageBudget maximum number of downloaded pages
+     * @param hostBudget maximum number of downloaded pages per host
+     */
+    PriorityFrontier(int slots, int pageBudget, int hostBudget) {
+        this.slots = slots;
+        this.pageBudget = pageBudget;
+        this.hostBudget = hostBudget;
+    }
+
+    /**
+     * Adds pending download.
+     *
+     * @param host  host of the page
+     * @param score priority of the page, greater scores are downloaded first
+     * @param start starts download, which must call {@link #done} when complete
+     * @param drop  called instead of {@code start} if download is dropped
+     */
+    void add(String host, double score, Runnable start, Runnable drop) {
+        synchronized (this) {
+            queue.add(new Pending(host, score, order++, start, drop));
+        }
+        dispatch();
+    }
+
+    /**
+     * Reports completion of download.
+     *
+     * @param host    host of the page
+     * @param success whether the page was downloaded
+     */
+    void done(String host, boolean success) {
+        synchronized (this) {
+            running--;
+            if (success) {
+                succeeded++;
+            } else {
+                hosts.merge(host, -1, Integer::sum);
+            }
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        synchronized (this) {
+            changed = true;
+            if (dispatching) {
+                return;
+            }
+            dispatching = true;
+        }
+        try {
+            while (true) {
+                final List<Runnable> actions = new ArrayList<>();
+                synchronized (this) {
+                    if (!changed) {
+                        dispatching = false;
+                        return;
+                    }
+                    changed = false;
+                    if (succeeded >= pageBudget) {
+                        queue.forEach(pending -> actions.add(pending.drop));
+                        queue.clear();
+                    }
+                    while (!queue.isEmpty() && running < slots && succeeded + running < pageBudget) {
+                        final Pending pending = queue.poll();
+                        if (hosts.getOrDefault(pending.host, 0) >= hostBudget) {
+                            actions.add(pending.drop);
+                        } else {
+                            hosts.merge(pending.host, 1, Integer::sum);
+                            running++;
+                            actions.add(pending.start);
+                        }
+                    }
+                }
+                // Actions calling add or done only mark frontier as changed, this loop dispatches again
+                actions.forEach(Runnable::run);
+            }
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                dispatching = false;
+            }
+            throw e;
+        }
+    }
+
+    private record Pending(String host, double score, long order, Runnable start, Runnable drop) {
+    }
+}
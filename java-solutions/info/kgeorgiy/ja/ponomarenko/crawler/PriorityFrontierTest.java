@@ -0,0 +1,116 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Result;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+import org.junit.jupiter.api.*;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class PriorityFrontierTest {
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    @Test
+    @DisplayName("downloads start in order of decreasing score")
+    void order() {
+        final PriorityFrontier frontier = new PriorityFrontier(1, UNLIMITED, UNLIMITED);
+        final List<String> started = new ArrayList<>();
+        frontier.add("a", 0, () -> started.add("first"), Assertions::fail);
+        final int[] scores = {1, 3, 2, 3};
+        for (int i = 0; i < scores.length; i++) {
+            final String name = scores[i] + "#" + i;
+            frontier.add("a", scores[i], () -> started.add(name), Assertions::fail);
+        }
+        Assertions.assertEquals(List.of("first"), started);
+        for (int i = 0; i < 4; i++) {
+            frontier.done("a", true);
+        }
+        Assertions.assertEquals(List.of("first", "3#1", "3#3", "2#2", "1#0"), started);
+    }
+
+    @Test
+    @DisplayName("page budget counts succeeded downloads only")
+    void pageBudget() {
+        final PriorityFrontier frontier = new PriorityFrontier(2, 3, UNLIMITED);
+        final List<Integer> started = new ArrayList<>();
+        final List<Integer> dropped = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int page = i;
+            frontier.add("host" + i, -i, () -> started.add(page), () -> dropped.add(page));
+        }
+        Assertions.assertEquals(List.of(0, 1), started);
+        frontier.done("host0", false);
+        frontier.done("host1", true);
+        Assertions.assertEquals(List.of(0, 1, 2, 3), started);
+        frontier.done("host2", true);
+        // Two pages succeeded and one is in progress, so no more downloads are started
+        Assertions.assertEquals(List.of(0, 1, 2, 3), started);
+        Assertions.assertEquals(List.of(), dropped);
+        frontier.done("host3", true);
+        Assertions.assertEquals(List.of(4, 5, 6, 7, 8, 9), dropped.stream().sorted().toList());
+        frontier.add("host10", 100, Assertions::fail, () -> dropped.add(10));
+        Assertions.assertEquals(7, dropped.size());
+    }
+
+    @Test
+    @DisplayName("host budget drops downloads of host")
+    void hostBudget() {
+        final PriorityFrontier frontier = new PriorityFrontier(UNLIMITED, UNLIMITED, 2);
+        final Map<String, Integer> started = new HashMap<>();
+        final List<String> dropped = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final String host = i % 2 == 0 ? "a" : "b";
+            frontier.add(host, 0, () -> started.merge(host, 1, Integer::sum), () -> dropped.add(host));
+        }
+        Assertions.assertEquals(Map.of("a", 2, "b", 2), started);
+        Assertions.assertEquals(List.of("a", "b"), dropped);
+        frontier.done("a", false);
+        frontier.add("a", 0, () -> started.merge("a", 1, Integer::sum), () -> dropped.add("a"));
+        frontier.add("a", 0, () -> started.merge("a", 1, Integer::sum), () -> dropped.add("a"));
+        // Failed download releases its host budget
+        Assertions.assertEquals(Map.of("a", 3, "b", 2), started);
+        Assertions.assertEquals(List.of("a", "b", "a"), dropped);
+    }
+
+    @Test
+    @DisplayName("synchronous downloads do not recurse")
+    void synchronous() {
+        final int pages = 100_000;
+        final PriorityFrontier frontier = new PriorityFrontier(1, UNLIMITED, UNLIMITED);
+        final int[] done = new int[1];
+        final Runnable start = new Runnable() {
+            @Override
+            public void run() {
+                if (++done[0] < pages) {
+                    frontier.add("a", 0, this, Assertions::fail);
+                }
+                frontier.done("a", true);
+            }
+        };
+        frontier.add("a", 0, start, Assertions::fail);
+        Assertions.assertEquals(pages, done[0]);
+    }
+
+    @Test
+    @DisplayName("priority crawl meets budgets")
+    void crawl() throws MalformedURLException {
+        try (LocalDownloader downloader = new LocalDownloader(1000, 5, 4, 0)) {
+            for (WebCrawler.Mode mode : List.of(WebCrawler.Mode.PIPELINED, WebCrawler.Mode.ASYNC)) {
+                try (WebCrawler crawler = new WebCrawler(downloader, 4, 2, 2, mode)) {
+                    final Result pages = crawler.download(downloader.url(0), 10, PageScorer.breadthFirst(), 50, UNLIMITED);
+                    Assertions.assertEquals(50, pages.getDownloaded().size());
+                    final Result hosts = crawler.download(downloader.url(0), 10, PageScorer.focused(), UNLIMITED, 7);
+                    final Map<String, Integer> perHost = new HashMap<>();
+                    for (String url : hosts.getDownloaded()) {
+                        perHost.merge(URLUtils.getHost(url), 1, Integer::sum);
+                    }
+                    Assertions.assertEquals(Map.of("host0.local", 7, "host1.local", 7, "host2.local", 7,
+                            "host3.local", 7, "host4.local", 7), perHost);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe set of visited URLs.
+ *
+ * @author Ponomarenko Ilya
+ */
+public interface VisitedSet {
+    /**
+     * Adds URL to the set.
+     *
+     * @param url URL to add
+     * @return {@code true} if URL was not in the set
+     */
+    boolean add(String url);
+
+    /**
+     * Returns approximate memory used by the set, not counting URLs themselves.
+     *
+     * @return size of the set in bytes
+     */
+    long bytes();
+
+    /**
+     * Creates exact set of URL strings.
+     *
+     * @return new set
+     */
+    static VisitedSet strings() {
+        final Set<String> urls = ConcurrentHashMap.newKeySet();
+        return new VisitedSet() {
+            @Override
+            public boolean add(String url) {
+                return urls.add(url);
+            }
+
+            @Override
+            public long bytes() {
+                // Node and table reference of ConcurrentHashMap
+                return 40L * urls.size();
+            }
+        };
+    }
+
+    /**
+     * Creates set of 64-bit URL fingerprints.
+     * Two URLs are taken as equal with probability about {@code n / 2^64}, where {@code n} is the size of the set.
+     *
+     * @param expected expected number of URLs
+     * @return new set
+     */
+    static VisitedSet fingerprints(int expected) {
+        return new FingerprintSet(expected);
+    }
+
+    /**
+     * Creates Bloom filter of fixed size.
+     * New URL is taken as visited with the given probability, as long as set size does not exceed expected.
+     *
+     * @param expected          expected number of URLs
+     * @param falsePositiveRate probability of false positive
+     * @return new set
+     */
+    static VisitedSet bloom(long expected, double falsePositiveRate) {
+        return new BloomFilter(expected, falsePositiveRate);
+    }
+
+    /**
+     * Computes 64-bit fingerprint of URL.
+     *
+     * @param url URL
+     * @return fingerprint
+     */
+    static long fingerprint(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ hash >>> 33;
+    }
+}
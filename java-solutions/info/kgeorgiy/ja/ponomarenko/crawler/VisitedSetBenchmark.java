@@ -0,0 +1,147 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.ja.ponomarenko.base.Utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark of {@link VisitedSet visited sets} and of URL storage of layered crawl.
+ * For each set reports inserts per second by concurrent threads, false positives and memory per URL,
+ * both measured as heap growth and reported by the set.
+ * Each thread adds its share of distinct URLs, then adds every eighth of them again.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class VisitedSetBenchmark {
+    private static final String USAGE = "VisitedSetBenchmark <urls> <threads>";
+    private static final int HOSTS = 5000;
+    private static final int REPEATED_SHARE = 8;
+
+    private final String[] urls;
+    private final int threads;
+
+    private VisitedSetBenchmark(int size, int threads) {
+        urls = new String[size];
+        for (int i = 0; i < size; i++) {
+            urls[i] = "http://host" + i % HOSTS + ".example.com/path/to/page/" + i + ".html";
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Main method for {@link VisitedSetBenchmark}.
+     * Usage: {@code VisitedSetBenchmark <urls> <threads>}
+     * <p>
+     * {@code urls} - number of distinct URLs, for example {@code 4000000}
+     * {@code threads} - number of concurrent threads, for example {@code 32}
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (!Utils.checkArgs(args, 2, 2, USAGE) || !Utils.checkIntegers(args, 0, 1)) {
+            return;
+        }
+        final int size = Integer.parseInt(args[0]);
+        final VisitedSetBenchmark benchmark = new VisitedSetBenchmark(size, Integer.parseInt(args[1]));
+        final Map<String, Supplier<VisitedSet>> sets = new LinkedHashMap<>();
+        sets.put("strings", VisitedSet::strings);
+        sets.put("fingerprints", () -> VisitedSet.fingerprints(size));
+        sets.put("bloom 1e-3", () -> VisitedSet.bloom(size, 1e-3));
+        sets.put("bloom 1e-6", () -> VisitedSet.bloom(size, 1e-6));
+        try {
+            for (Map.Entry<String, Supplier<VisitedSet>> set : sets.entrySet()) {
+                benchmark.measure(set.getKey(), set.getValue());
+            }
+            benchmark.storage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void measure(String name, Supplier<VisitedSet> sets) throws InterruptedException {
+        final long before = usedMemory();
+        final VisitedSet set = sets.get();
+        final AtomicLong added = new AtomicLong();
+        final long time = run(thread -> {
+            long count = 0;
+            for (int i = thread; i < urls.length; i += threads) {
+                if (set.add(urls[i])) {
+                    count++;
+                }
+            }
+            for (int i = thread; i < urls.length; i += threads * REPEATED_SHARE) {
+                set.add(urls[i]);
+            }
+            added.addAndGet(count);
+        });
+        final long heap = usedMemory() - before;
+        final double inserts = urls.length + (double) urls.length / REPEATED_SHARE;
+        System.out.printf("%-14s %6.2f M inserts/s, false positives: %d, heap: %5.1f B/URL, reported: %5.1f B/URL%n",
+                name, inserts / time * 1e3, urls.length - added.get(),
+                (double) heap / urls.length, (double) set.bytes() / urls.length);
+        // Keep set reachable until memory is measured
+        if (set.bytes() < 0) {
+            System.out.println(set);
+        }
+    }
+
+    /**
+     * Compares queue of URL strings with {@link CompactUrls}, as layers and result of layered crawl.
+     */
+    private void storage() throws InterruptedException {
+        long before = usedMemory();
+        final Queue<String> strings = new ConcurrentLinkedQueue<>();
+        final long stringsTime = run(thread -> {
+            for (int i = thread; i < urls.length; i += threads) {
+                // Copy, as extracted links are distinct strings
+                strings.add(new String(urls[i].toCharArray()));
+            }
+        });
+        final long stringsHeap = usedMemory() - before;
+        System.out.printf("%-14s %6.2f M adds/s, heap: %5.1f B/URL%n", "string queue",
+                (double) urls.length / stringsTime * 1e3, (double) stringsHeap / urls.length);
+        strings.clear();
+
+        before = usedMemory();
+        final CompactUrls compact = new CompactUrls();
+        final long compactTime = run(thread -> {
+            for (int i = thread; i < urls.length; i += threads) {
+                compact.add(urls[i]);
+            }
+        });
+        final long compactHeap = usedMemory() - before;
+        System.out.printf("%-14s %6.2f M adds/s, heap: %5.1f B/URL, reported: %5.1f B/URL%n", "compact urls",
+                (double) urls.length / compactTime * 1e3, (double) compactHeap / urls.length,
+                (double) compact.bytes() / urls.length);
+    }
+
+    /**
+     * Runs task in each thread and returns elapsed time in nanoseconds.
+     */
+    private long run(IntConsumer task) throws InterruptedException {
+        final Thread[] workers = new Thread[threads];
+        final long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            workers[i] = new Thread(() -> task.accept(thread));
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,86 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class VisitedSetTest {
+    private static final int SIZE = 100_000;
+    private static final int THREADS = 8;
+
+    @Test
+    @DisplayName("exact sets grow and add each URL once")
+    void exact() throws InterruptedException {
+        for (Supplier<VisitedSet> sets : List.<Supplier<VisitedSet>>of(VisitedSet::strings, () -> VisitedSet.fingerprints(1))) {
+            final VisitedSet set = sets.get();
+            final long initial = set.bytes();
+            Assertions.assertEquals(SIZE, addConcurrently(set));
+            Assertions.assertEquals(0, addConcurrently(set));
+            Assertions.assertTrue(set.bytes() > initial, "set should grow");
+        }
+    }
+
+    @Test
+    @DisplayName("fingerprint set takes zero fingerprint as non-empty slot")
+    void zeroFingerprint() {
+        final FingerprintSet set = new FingerprintSet(1);
+        Assertions.assertTrue(set.add(0));
+        Assertions.assertFalse(set.add(0));
+        for (long fingerprint = 2; fingerprint < 1000; fingerprint++) {
+            Assertions.assertTrue(set.add(fingerprint << 50));
+        }
+        Assertions.assertFalse(set.add(0));
+    }
+
+    @Test
+    @DisplayName("Bloom filter has no false negatives and bounded false positives")
+    void bloom() {
+        final VisitedSet filter = VisitedSet.bloom(SIZE, 1e-3);
+        int added = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (filter.add(url(i))) {
+                added++;
+            }
+        }
+        for (int i = 0; i < SIZE; i++) {
+            Assertions.assertFalse(filter.add(url(i)));
+        }
+        Assertions.assertTrue(SIZE - added < SIZE * 1e-2, "false positives: " + (SIZE - added));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> VisitedSet.bloom(0, 1e-3));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> VisitedSet.bloom(SIZE, 1));
+    }
+
+    /**
+     * Adds {@value #SIZE} URLs by concurrent threads, each URL by two threads.
+     *
+     * @return number of URLs reported as new
+     */
+    private static int addConcurrently(VisitedSet set) throws InterruptedException {
+        final AtomicInteger added = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = thread / 2; i < SIZE; i += THREADS / 2) {
+                    if (set.add(url(i))) {
+                        added.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return added.get();
+    }
+
+    private static String url(int i) {
+        return "http://host" + i % 1000 + ".com/page/" + i;
+    }
+}
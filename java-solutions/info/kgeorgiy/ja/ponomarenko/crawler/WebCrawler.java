@@ -3,11 +3,20 @@ package info.kgeorgiy.ja.ponomarenko.crawler;
 import info.kgeorgiy.java.advanced.crawler.*;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static info.kgeorgiy.ja.ponomarenko.base.Utils.checkArgs;
 import static info.kgeorgiy.ja.ponomarenko.base.Utils.parseOrDefault;
@@ -18,13 +27,40 @@ import static info.kgeorgiy.ja.ponomarenko.base.Utils.parseOrDefault;
  * @author Ponomarenko Ilya
  */
 public class WebCrawler implements Crawler {
-    private static final String USAGE = "WebCrawler url [depth [downloads [extractors [perHost]]]]";
-    private final ExecutorService downloadExecutor;
-    private final ExecutorService extractExecutor;
+    private static final String USAGE = "WebCrawler url [depth [downloads [extractors [perHost [mode]]]]]";
+    /**
+     * Number of journal records between checkpoints.
+     */
+    private static final long CHECKPOINT_INTERVAL = 1 << 16;
+    /**
+     * Maximum number of URLs of journaled crawl scheduled for download, further URLs are spilled to the journal.
+     */
+    private static final int FRONTIER_LIMIT = 1 << 12;
+    /**
+     * Time to wait for running tasks on close, in milliseconds.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 150;
+    /**
+     * Time to keep idle download threads in {@link Mode#ASYNC} mode, in milliseconds.
+     */
+    private static final long IDLE_TIMEOUT = 1000;
+    private final ThreadPoolExecutor downloadExecutor;
+    private final ThreadPoolExecutor extractExecutor;
     private final Downloader downloader;
+    private final HostLimiter hostLimiter;
+    /**
+     * Limit of downloads in progress in {@link Mode#ASYNC} mode, with all tasks under {@code ""} key.
+     */
+    private final HostLimiter asyncLimiter;
+    private final Mode mode;
+    private final int downloaders;
+    private volatile CrawlerMetrics metrics;
+    private final Supplier<? extends VisitedSet> visitedSets;
+    private final LinkCache cache;
+    private final boolean normalize;
 
     /**
-     * Creates a new instance of {@link WebCrawler}.
+     * Creates a new instance of {@link WebCrawler} crawling layer by layer.
      *
      * @param downloader  {@link Downloader} to use
      * @param downloaders number of downloaders
@@ -32,25 +68,107 @@ public class WebCrawler implements Crawler {
      * @param perHost     maximum number of downloads from one host
      */
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
-        downloadExecutor = Executors.newFixedThreadPool(downloaders);
-        extractExecutor = Executors.newFixedThreadPool(extractors);
+        this(downloader, downloaders, extractors, perHost, Mode.LAYERED);
+    }
+
+    /**
+     * Creates a new instance of {@link WebCrawler} with the given crawl mode.
+     * In {@link Mode#ASYNC} mode {@code downloaders} limits the number of downloads in progress.
+     *
+     * @param downloader  {@link Downloader} to use
+     * @param downloaders number of downloaders
+     * @param extractors  number of extractors
+     * @param perHost     maximum number of downloads from one host
+     * @param mode        crawl mode
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, Mode mode) {
+        this(downloader, downloaders, extractors, perHost, mode, VisitedSet::strings);
+    }
+
+    /**
+     * Creates a new instance of {@link WebCrawler} with the given crawl mode and visited URLs set.
+     * Compact {@link VisitedSet visited sets} reduce memory of {@link Mode#LAYERED layered} crawl,
+     * other modes keep remaining depth of each URL and do not use them.
+     *
+     * @param downloader  {@link Downloader} to use
+     * @param downloaders number of downloaders
+     * @param extractors  number of extractors
+     * @param perHost     maximum number of downloads from one host
+     * @param mode        crawl mode
+     * @param visitedSets factory of visited URLs sets, called once per crawl
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, Mode mode,
+                      Supplier<? extends VisitedSet> visitedSets) {
+        this(downloader, downloaders, extractors, perHost, mode, visitedSets, null);
+    }
+
+    /**
+     * Creates a new instance of {@link WebCrawler} with the given crawl mode, visited URLs set and link cache.
+     * Pages found in cache are neither downloaded nor extracted.
+     * Cache may be shared between crawlers.
+     *
+     * @param downloader  {@link Downloader} to use
+     * @param downloaders number of downloaders
+     * @param extractors  number of extractors
+     * @param perHost     maximum number of downloads from one host
+     * @param mode        crawl mode
+     * @param visitedSets factory of visited URLs sets, called once per crawl
+     * @param cache       cache of downloaded pages, {@code null} to disable caching
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, Mode mode,
+                      Supplier<? extends VisitedSet> visitedSets, LinkCache cache) {
+        this(downloader, downloaders, extractors, perHost, mode, visitedSets, cache, false);
+    }
+
+    /**
+     * Creates a new instance of {@link WebCrawler} with the given crawl mode, visited URLs set, link cache
+     * and URL normalization.
+     * With normalization, start URL and extracted links are taken without fragment,
+     * with lower-case scheme and host and without default port, so variants of the same URL are downloaded once.
+     * Downloaded URLs and errors of the result are normalized as well, so they may differ from links of documents.
+     *
+     * @param downloader  {@link Downloader} to use
+     * @param downloaders number of downloaders
+     * @param extractors  number of extractors
+     * @param perHost     maximum number of downloads from one host
+     * @param mode        crawl mode
+     * @param visitedSets factory of visited URLs sets, called once per crawl
+     * @param cache       cache of downloaded pages, {@code null} to disable caching
+     * @param normalize   whether to normalize URLs
+     */
+    public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost, Mode mode,
+                      Supplier<? extends VisitedSet> visitedSets, LinkCache cache, boolean normalize) {
+        this.visitedSets = visitedSets;
+        this.normalize = normalize;
+        this.cache = cache;
+        this.downloaders = downloaders;
+        // Downloads in progress are limited by asyncLimiter, so threads of plain downloader are created on demand
+        downloadExecutor = mode == Mode.ASYNC
+                ? new ThreadPoolExecutor(0, Integer.MAX_VALUE, IDLE_TIMEOUT, TimeUnit.MILLISECONDS, new SynchronousQueue<>())
+                : newPool(downloaders);
+        extractExecutor = newPool(extractors);
         this.downloader = downloader;
+        this.mode = mode;
+        hostLimiter = new HostLimiter(downloadExecutor, perHost);
+        asyncLimiter = new HostLimiter(downloadExecutor, downloaders);
     }
 
     /**
      * Main method for {@link WebCrawler}.
-     * Usage: {@code WebCrawler url [depth [downloads [extractors]]]}
+     * Usage: {@code WebCrawler url [depth [downloads [extractors [perHost [mode]]]]]}
      *
      * {@code url} - starting url
      * {@code depth} - depth of crawling
      * {@code downloads} - number of downloaders
      * {@code extractors} - number of extractors
+     * {@code perHost} - maximum number of downloads from one host
+     * {@code mode} - {@code layered}, {@code pipelined} or {@code async}, {@code layered} by default
      * all arguments are optional
      *
      * @param args command line arguments
      */
     public static void main(String[] args) {
-        if (!checkArgs(args, 1, 5, USAGE)) {
+        if (!checkArgs(args, 1, 6, USAGE)) {
             return;
         }
         final String url = args[0];
@@ -59,9 +177,12 @@ public class WebCrawler implements Crawler {
             final int downloaders = parseOrDefault(args, 2, 1, "downloaders");
             final int extractors = parseOrDefault(args, 3, 1, "extractors");
             final int perHost = parseOrDefault(args, 4, 1, "perHost");
-            try (Crawler crawler = new WebCrawler(new CachingDownloader(0), downloaders, extractors, perHost)) {
+            final Mode mode = args.length > 5 ? Mode.valueOf(args[5].toUpperCase()) : Mode.LAYERED;
+            try (WebCrawler crawler = new WebCrawler(new CachingDownloader(0), downloaders, extractors, perHost, mode)) {
+                final CrawlerMetricsMXBean metrics = crawler.enableMetrics();
                 Result result = crawler.download(url, depth);
                 System.out.println(result.getDownloaded().stream().collect(Collectors.joining(System.lineSeparator())));
+                System.err.print(metrics.getSummary());
             } catch (Exception e) {
                 System.out.println("Error: " + e.getMessage());
             }
@@ -72,13 +193,166 @@ public class WebCrawler implements Crawler {
 
     @Override
     public Result download(String url, int depth) {
-        return new DownloadTask(url, depth).call();
+        return switch (mode) {
+            case LAYERED -> new DownloadTask(url, depth).call();
+            case PIPELINED, ASYNC -> new PipelinedTask(url, depth).call();
+        };
+    }
+
+    /**
+     * Crawls web site like {@link #download(String, int)}, recording progress to journal in the given directory.
+     * If the directory contains journal of an interrupted crawl, the crawl is resumed:
+     * pages downloaded before restart are not downloaded again.
+     * Remaining depths of URLs are kept in memory-mapped index rather than in heap,
+     * and pages reached again closer to the start are downloaded again.
+     * Crawl is made in {@link Mode#PIPELINED} mode, unless the crawler is in {@link Mode#ASYNC} mode.
+     *
+     * @param url       start URL
+     * @param depth     download depth
+     * @param directory directory to keep journal in
+     * @return download result
+     * @throws IOException if journal can't be read or written, the crawl is stopped then
+     */
+    public Result download(String url, int depth, Path directory) throws IOException {
+        try (CrawlJournal journal = new CrawlJournal(directory, CHECKPOINT_INTERVAL)) {
+            return new PipelinedTask(url, depth, journal, null).call();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Crawls web site downloading pages in order of decreasing score, until page budget is met.
+     * Pages of hosts which have met host budget are not downloaded.
+     * Downloading stops as soon as {@code pageBudget} pages are downloaded,
+     * so crawl time depends on the budget rather than on the size of the site.
+     * Crawl is made in {@link Mode#PIPELINED} mode, unless the crawler is in {@link Mode#ASYNC} mode.
+     *
+     * @param url        start URL
+     * @param depth      download depth
+     * @param scorer     priority of pages
+     * @param pageBudget maximum number of downloaded pages
+     * @param hostBudget maximum number of downloaded pages per host
+     * @return download result
+     */
+    public Result download(String url, int depth, PageScorer scorer, int pageBudget, int hostBudget) {
+        return new PipelinedTask(url, depth, null, null,
+                new PriorityFrontier(downloaders, pageBudget, hostBudget), scorer).call();
+    }
+
+    /**
+     * Crawls web site, passing outcome of each page to the listener as soon as the page is processed.
+     * Listener is called concurrently from crawler threads, so slow listener slows the crawl down.
+     * No {@link Result} is built, so consumer may process pages while the crawl is in progress.
+     * Crawl keeps neither links nor errors of pages, and reached URLs are kept as 64-bit fingerprints.
+     * Page may be reported again, with smaller depth, if it is reached again closer to the start.
+     * Crawl is made in {@link Mode#PIPELINED} mode, unless the crawler is in {@link Mode#ASYNC} mode.
+     *
+     * @param url      start URL
+     * @param depth    download depth
+     * @param listener receiver of page outcomes
+     */
+    public void download(String url, int depth, Consumer<? super CrawlEvent> listener) {
+        new PipelinedTask(url, depth, null, event -> {
+            listener.accept(event);
+            return true;
+        }).start().join();
+    }
+
+    /**
+     * Returns publisher of page outcomes of the web site crawl.
+     * Each subscription starts a new crawl on crawler threads, which is stopped when the subscription is cancelled.
+     * Outcomes are delivered asynchronously, crawler threads never wait for subscriber.
+     * At most {@code buffer} outcomes are kept for subscriber: if it falls further behind,
+     * the crawl is stopped and subscriber receives {@link Flow.Subscriber#onError onError}.
+     * Memory of the crawl is the same as for {@link #download(String, int, Consumer)}.
+     *
+     * @param url    start URL
+     * @param depth  download depth
+     * @param buffer maximum number of outcomes buffered for subscriber, rounded up to a power of two
+     * @return publisher of page outcomes
+     * @see #download(String, int, Consumer)
+     */
+    public Flow.Publisher<CrawlEvent> stream(String url, int depth, int buffer) {
+        return subscriber -> {
+            final SubmissionPublisher<CrawlEvent> publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool(), buffer);
+            publisher.subscribe(subscriber);
+            final PipelinedTask task = new PipelinedTask(url, depth, null, event -> {
+                try {
+                    if (publisher.offer(event, (s, dropped) -> false) < 0) {
+                        publisher.closeExceptionally(new IllegalStateException(
+                                "Subscriber is more than " + buffer + " outcomes behind, crawl is stopped"));
+                        return false;
+                    }
+                } catch (IllegalStateException e) {
+                    // Publisher is already closed
+                    return false;
+                }
+                return publisher.hasSubscribers();
+            });
+            try {
+                extractExecutor.execute(() -> task.start().whenComplete((result, e) -> publisher.close()));
+            } catch (RejectedExecutionException e) {
+                publisher.closeExceptionally(e);
+            }
+        };
+    }
+
+    private static ThreadPoolExecutor newPool(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Enables collection of metrics and publishes them via JMX until the crawler is closed.
+     * Metrics are not collected until this method is called.
+     *
+     * @return crawler metrics
+     */
+    public synchronized CrawlerMetricsMXBean enableMetrics() {
+        if (metrics == null) {
+            final CrawlerMetrics created = new CrawlerMetrics(downloadExecutor, extractExecutor,
+                    () -> hostLimiter.waiting() + asyncLimiter.waiting());
+            created.register();
+            metrics = created;
+        }
+        return metrics;
+    }
+
+    private void recordDownload(String host, long start) {
+        final CrawlerMetrics current = metrics;
+        if (current != null) {
+            current.downloaded(host, System.nanoTime() - start);
+        }
+    }
+
+    private void recordError(Exception e) {
+        final CrawlerMetrics current = metrics;
+        if (current != null) {
+            current.failed(e);
+        }
+    }
+
+    /**
+     * Looks page up in cache, if any, recording hit or miss.
+     *
+     * @return links of the page, empty list if links are not required, {@code null} on miss or without cache
+     */
+    private List<String> cached(String url, boolean links) {
+        if (cache == null) {
+            return null;
+        }
+        final List<String> result = cache.get(url, links);
+        final CrawlerMetrics current = metrics;
+        if (current != null) {
+            current.cached(result != null);
+        }
+        return result;
     }
 
     private static void shutdown(ExecutorService executorService) {
         executorService.shutdown();
         try {
-            if (!executorService.awaitTermination(150, TimeUnit.MILLISECONDS)) {
+            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
                 executorService.shutdownNow();
             }
         } catch (InterruptedException ignored) {
@@ -86,19 +360,54 @@ public class WebCrawler implements Crawler {
         }
     }
 
+    private CompletableFuture<Document> downloadAsync(String url) {
+        if (downloader instanceof AsyncDownloader async) {
+            try {
+                return async.downloadAsync(url);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return downloader.download(url);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, downloadExecutor);
+    }
+
+    private static IOException toIOException(Throwable e) {
+        final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof IOException exception ? exception : new IOException(cause);
+    }
+
     @Override
     public void close() {
+        final CrawlerMetrics current = metrics;
+        if (current != null) {
+            current.unregister();
+        }
         shutdown(downloadExecutor);
         shutdown(extractExecutor);
     }
 
+    /**
+     * Crawl layer by layer.
+     * URLs of all layers are kept once in {@link CompactUrls}, each layer is a range of indices in it,
+     * so neither layers nor result keep a {@link String} per URL.
+     * URL is added to visited set when it is reached, so each layer contains only new URLs.
+     */
     private class DownloadTask implements Callable<Result> {
         private final String url;
         private final int depth;
-        private final Set<String> downloaded = ConcurrentHashMap.newKeySet();
+        private final VisitedSet visited = visitedSets.get();
+        private final CompactUrls urls = new CompactUrls();
+        /**
+         * Indices of failed URLs, guarded by itself.
+         */
+        private final BitSet failed = new BitSet();
         private final Map<String, IOException> errors = new ConcurrentHashMap<>();
-        private Set<String> curLayer = ConcurrentHashMap.newKeySet();
-        private Set<String> nextLayer = ConcurrentHashMap.newKeySet();
 
         public DownloadTask(String url, int depth) {
             this.url = url;
@@ -106,52 +415,606 @@ public class WebCrawler implements Crawler {
         }
 
         public Result call() {
-            curLayer.add(url);
-            download(depth);
-            return new Result(downloaded.stream().filter(s -> !errors.containsKey(s)).collect(Collectors.toList()), errors);
+            reach(List.of(normalize ? Links.normalize(url) : url));
+            download();
+            synchronized (failed) {
+                return new Result(urls.toList(failed), errors);
+            }
+        }
+
+        private void reach(List<String> links) {
+            for (String link : links) {
+                if (visited.add(link)) {
+                    urls.add(link);
+                }
+            }
         }
 
-        private void download(int depth) {
+        private void download() {
             final Phaser phaser = new Phaser(1);
-            IntStream.range(0, depth).forEach(i -> {
-                curLayer.forEach(x -> {
-                    phaser.register();
-                    downloadExecutor.execute(downloadTask(depth, i, phaser, x));
-                });
+            int from = 0;
+            for (int i = 0; i < depth && from < urls.size(); i++) {
+                final int to = urls.size();
+                for (int index = from; index < to; index++) {
+                    download(phaser, i, index, urls.get(index));
+                }
                 phaser.arriveAndAwaitAdvance();
-                curLayer = nextLayer;
-                nextLayer = ConcurrentHashMap.newKeySet();
-            });
+                from = to;
+            }
         }
 
-        private Runnable downloadTask(int depth, int i, Phaser phaser, String x) {
+        private void download(Phaser phaser, int i, int index, String x) {
+            final List<String> links = cached(x, i + 1 < depth);
+            if (links != null) {
+                reach(links);
+                return;
+            }
+            try {
+                final String host = URLUtils.getHost(x);
+                phaser.register();
+                hostLimiter.execute(host, downloadTask(phaser, i, index, x, host)).whenComplete((v, e) -> {
+                    if (e instanceof RejectedExecutionException) {
+                        error(index, x, toIOException(e));
+                        phaser.arriveAndDeregister();
+                    }
+                });
+            } catch (MalformedURLException e) {
+                error(index, x, e);
+            }
+        }
+
+        private Runnable downloadTask(Phaser phaser, int i, int index, String x, String host) {
             return () -> {
+                final long start = System.nanoTime();
                 try {
-                    if (downloaded.add(x)) {
-                        final Document res = downloader.download(x);
-                        if (i + 1 < depth) {
-                            phaser.register();
-                            extractExecutor.execute(executeTask(phaser, x, res));
+                    final Document res = downloader.download(x);
+                    recordDownload(host, start);
+                    if (i + 1 < depth) {
+                        phaser.register();
+                        try {
+                            extractExecutor.execute(executeTask(phaser, index, x, res));
+                        } catch (RejectedExecutionException e) {
+                            error(index, x, toIOException(e));
+                            phaser.arriveAndDeregister();
                         }
+                    } else if (cache != null) {
+                        cache.put(x, null);
                     }
                 } catch (IOException e) {
-                    errors.put(x, e);
+                    recordDownload(host, start);
+                    error(index, x, e);
                 } finally {
                     phaser.arriveAndDeregister();
                 }
             };
         }
 
-        private Runnable executeTask(Phaser phaser, String x, Document res) {
+        private void error(int index, String x, IOException e) {
+            synchronized (failed) {
+                failed.set(index);
+            }
+            errors.put(x, e);
+            recordError(e);
+        }
+
+        private Runnable executeTask(Phaser phaser, int index, String x, Document res) {
             return () -> {
                 try {
-                    nextLayer.addAll(res.extractLinks());
+                    final List<String> links = Links.flatten(Links.byHost(res.extractLinks(), normalize));
+                    if (cache != null) {
+                        cache.put(x, links);
+                    }
+                    reach(links);
                 } catch (IOException e) {
-                    errors.put(x, e);
+                    error(index, x, e);
                 } finally {
                     phaser.arriveAndDeregister();
                 }
             };
         }
     }
+
+    /**
+     * Crawl without barriers between depth layers.
+     * Each URL carries its remaining depth, links are submitted as soon as they are extracted.
+     * If URL is reached again closer to the start, its links are extracted again with greater remaining depth,
+     * so the result is the same as for layered crawl.
+     * In {@link Mode#ASYNC} mode no thread is blocked while download is in progress.
+     */
+    private class PipelinedTask implements Callable<Result> {
+        /**
+         * Marker of page whose links are not kept in {@link #pages}.
+         */
+        private static final List<String> NOT_KEPT = List.of(Links.NO_HOST);
+        private final String url;
+        private final int depth;
+        /**
+         * Maximum remaining depth URL was reached with, unless crawl is journaled.
+         */
+        private final ConcurrentMap<String, Integer> reached = new ConcurrentHashMap<>();
+        /**
+         * Remaining depths of URLs, kept by journal index when crawl is journaled
+         * and by fingerprints when crawl has a listener.
+         */
+        private final Depths depths;
+        /**
+         * Links of downloaded pages that may be reached again with greater remaining depth,
+         * {@link #NOT_KEPT} if links were not extracted or are kept by cache.
+         * Nothing is kept when crawl is journaled or has a listener.
+         */
+        private final Map<String, List<String>> pages = new ConcurrentHashMap<>();
+        private final boolean keepLinks;
+        private final Map<String, IOException> errors = new ConcurrentHashMap<>();
+        /**
+         * URLs dropped by priority frontier without download.
+         */
+        private final Set<String> skipped = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger inFlight = new AtomicInteger(1);
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private final CrawlJournal journal;
+        /**
+         * Receiver of page outcomes, returning {@code false} to stop the crawl.
+         */
+        private final Predicate<CrawlEvent> listener;
+        private final PriorityFrontier frontier;
+        private final PageScorer scorer;
+        private volatile IOException journalError;
+        private volatile boolean cancelled;
+        /**
+         * Numbers of URLs of journaled crawl scheduled for download and spilled to the journal, guarded by the journal.
+         * URLs are spilled only while at least half of the limit is scheduled or being read back,
+         * so spilled URLs are read back as scheduled ones complete.
+         */
+        private int scheduled;
+        private long spilled;
+        /**
+         * Whether some thread is reading spilled URLs back, guarded by the journal.
+         */
+        private boolean refilling;
+
+        public PipelinedTask(String url, int depth) {
+            this(url, depth, null, null);
+        }
+
+        public PipelinedTask(String url, int depth, CrawlJournal journal, Predicate<CrawlEvent> listener) {
+            this(url, depth, journal, listener, null, null);
+        }
+
+        public PipelinedTask(String url, int depth, CrawlJournal journal, Predicate<CrawlEvent> listener,
+                             PriorityFrontier frontier, PageScorer scorer) {
+            this.url = url;
+            this.depth = depth;
+            this.journal = journal;
+            this.listener = listener;
+            this.frontier = frontier;
+            this.scorer = scorer;
+            depths = journal != null ? journal.index : listener != null ? new FingerprintDepths() : Depths.of(reached);
+            keepLinks = journal == null && listener == null;
+        }
+
+        /**
+         * Runs the crawl.
+         *
+         * @return download result
+         * @throws UncheckedIOException if crawl is journaled and journal fails
+         */
+        public Result call() throws UncheckedIOException {
+            try {
+                start().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+            if (journal == null) {
+                return new Result(reached.keySet().stream()
+                        .filter(s -> !errors.containsKey(s) && !skipped.contains(s))
+                        .collect(Collectors.toList()), errors);
+            }
+            try {
+                if (journalError != null) {
+                    throw journalError;
+                }
+                return new Result(journal.pages(errors.keySet()), errors);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Starts the crawl without waiting for it.
+         *
+         * @return future completed when the crawl is finished
+         */
+        public CompletableFuture<Void> start() {
+            if (journal != null) {
+                resume();
+            }
+            if (depth > 0) {
+                visit(normalize ? Links.normalize(url) : url, depth, 0, null);
+            }
+            release();
+            return finished;
+        }
+
+        private void resume() {
+            journal.errors.forEach((x, message) -> errors.put(x, new IOException(message)));
+            try {
+                journal.pending(x -> schedule(x, 0, null));
+            } catch (IOException e) {
+                journalFailed(e);
+            }
+        }
+
+        private void visit(String x, int remaining, int referrerLinks, String host) {
+            if (cancelled) {
+                return;
+            }
+            final int old;
+            try {
+                old = depths.raise(x, remaining);
+            } catch (UncheckedIOException e) {
+                journalFailed(e.getCause());
+                return;
+            }
+            if (old == 0) {
+                record(() -> journal.visited(x, remaining));
+                schedule(x, referrerLinks, host);
+            } else if (old < remaining) {
+                record(() -> journal.visited(x, remaining));
+                final List<String> links = pages.get(x);
+                if (links != null) {
+                    revisit(x, links, remaining);
+                } else if (depths.done(x) >= old) {
+                    // Links were visited, but not kept
+                    revisit(x, NOT_KEPT, remaining);
+                }
+            }
+        }
+
+        /**
+         * Schedules download of the page, host is computed from URL if it is {@code null}.
+         */
+        private void schedule(String x, int referrerLinks, String knownHost) {
+            final String host;
+            try {
+                host = knownHost != null ? knownHost : URLUtils.getHost(x);
+            } catch (MalformedURLException e) {
+                failed(x, e);
+                return;
+            }
+            inFlight.incrementAndGet();
+            if (journal != null && spill(x)) {
+                return;
+            }
+            enqueue(x, host, referrerLinks);
+        }
+
+        private void enqueue(String x, String host, int referrerLinks) {
+            if (frontier == null) {
+                fetch(x, host);
+            } else {
+                frontier.add(host, scorer.score(x, host, depth - depths.get(x) + 1, referrerLinks),
+                        () -> fetch(x, host),
+                        () -> {
+                            if (listener == null) {
+                                skipped.add(x);
+                            }
+                            release();
+                        });
+            }
+        }
+
+        /**
+         * Spills URL of journaled crawl to the journal if too many URLs are scheduled, otherwise counts it as scheduled.
+         * Spilled URL keeps its in-flight task until it is read back.
+         *
+         * @return whether URL was spilled
+         */
+        private boolean spill(String x) {
+            synchronized (journal) {
+                if (spilled > 0 || scheduled >= FRONTIER_LIMIT) {
+                    try {
+                        journal.spill(x);
+                        spilled++;
+                        return true;
+                    } catch (IOException e) {
+                        // Crawl is stopped, so URL is released without download
+                        journalFailed(e);
+                    }
+                }
+                scheduled++;
+                return false;
+            }
+        }
+
+        /**
+         * Counts completed download of journaled crawl and reads spilled URLs back
+         * when fewer than half of the limit are scheduled.
+         * Downloads completing synchronously call this method while URLs are read back,
+         * so only the outermost call reads them in a loop.
+         */
+        private void refill() {
+            synchronized (journal) {
+                scheduled--;
+                if (refilling || spilled == 0 || scheduled >= FRONTIER_LIMIT / 2) {
+                    return;
+                }
+                refilling = true;
+            }
+            while (true) {
+                List<String> batch = List.of();
+                long lost = 0;
+                synchronized (journal) {
+                    if (spilled == 0 || scheduled >= FRONTIER_LIMIT / 2) {
+                        refilling = false;
+                        return;
+                    }
+                    try {
+                        batch = journal.unspill(FRONTIER_LIMIT - scheduled);
+                        spilled -= batch.size();
+                        scheduled += batch.size();
+                    } catch (IOException e) {
+                        journalFailed(e);
+                        lost = spilled;
+                        spilled = 0;
+                    }
+                }
+                for (; lost > 0; lost--) {
+                    release();
+                }
+                for (String x : batch) {
+                    try {
+                        enqueue(x, URLUtils.getHost(x), 0);
+                    } catch (MalformedURLException e) {
+                        failed(x, e);
+                        fetched(null, false);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Takes page from cache or downloads it, releasing in-flight task taken by caller when done.
+         */
+        private void fetch(String x, String host) {
+            if (cache != null) {
+                final boolean needLinks = depths.get(x) > 1;
+                final List<String> links = cached(x, needLinks);
+                if (links != null) {
+                    try {
+                        downloaded(x, needLinks ? () -> links : null);
+                    } finally {
+                        fetched(host, true);
+                    }
+                    return;
+                }
+            }
+            if (mode == Mode.ASYNC) {
+                final AtomicLong start = new AtomicLong();
+                hostLimiter.submit(host, () -> asyncLimiter.submit("", () -> {
+                            start.set(System.nanoTime());
+                            return cancelled ? CompletableFuture.<Document>completedFuture(null) : downloadAsync(x);
+                        }))
+                        .whenComplete((res, e) -> {
+                            try {
+                                if (cancelled) {
+                                    return;
+                                }
+                                recordDownload(host, start.get());
+                                if (e == null) {
+                                    downloaded(x, res);
+                                } else {
+                                    failed(x, toIOException(e));
+                                }
+                            } finally {
+                                fetched(host, !cancelled && e == null);
+                            }
+                        });
+            } else {
+                hostLimiter.execute(host, downloadTask(x, host)).whenComplete((v, e) -> {
+                    if (e instanceof RejectedExecutionException) {
+                        failed(x, toIOException(e));
+                        fetched(host, false);
+                    }
+                });
+            }
+        }
+
+        private Runnable downloadTask(String x, String host) {
+            return () -> {
+                boolean success = false;
+                final long start = System.nanoTime();
+                try {
+                    if (!cancelled) {
+                        final Document res = downloader.download(x);
+                        recordDownload(host, start);
+                        downloaded(x, res);
+                        success = true;
+                    }
+                } catch (IOException e) {
+                    recordDownload(host, start);
+                    failed(x, e);
+                } finally {
+                    fetched(host, success);
+                }
+            };
+        }
+
+        private void fetched(String host, boolean success) {
+            if (frontier != null) {
+                frontier.done(host, success);
+            }
+            if (journal != null) {
+                refill();
+            }
+            release();
+        }
+
+        /**
+         * Processes downloaded page, {@code null} if page was taken from cache without links.
+         */
+        private void downloaded(String x, Document res) {
+            if (res == null) {
+                // Links are visited again through the usual download path, if page is reached closer meanwhile
+                completed(x, 1, null);
+                keep(x, NOT_KEPT, 1);
+                return;
+            }
+            final int remaining = depths.get(x);
+            if (!extract(x, res, remaining)) {
+                if (cache != null) {
+                    cache.put(x, null);
+                }
+                completed(x, remaining, null);
+                keep(x, NOT_KEPT, remaining);
+            }
+        }
+
+        /**
+         * Keeps links of page that may be reached again with greater remaining depth.
+         * If it has already happened while the page was processed, visits links again.
+         */
+        private void keep(String x, List<String> links, int remaining) {
+            if (remaining < depth) {
+                if (keepLinks) {
+                    pages.put(x, links);
+                }
+                final int current = depths.get(x);
+                if (current > remaining) {
+                    revisit(x, links, current);
+                }
+            }
+        }
+
+        /**
+         * Visits links of downloaded page again with greater remaining depth.
+         * Links which are not kept are taken from cache, or the page is downloaded again.
+         */
+        private void revisit(String x, List<String> links, int remaining) {
+            if (links != NOT_KEPT) {
+                extract(x, () -> links, remaining);
+            } else if (!keepLinks || pages.remove(x, NOT_KEPT)) {
+                final List<String> cached = cached(x, true);
+                if (cached != null) {
+                    extract(x, () -> cached, remaining);
+                } else {
+                    schedule(x, 0, null);
+                }
+            }
+        }
+
+        private boolean extract(String x, Document res, int remaining) {
+            if (remaining <= 1) {
+                return false;
+            }
+            inFlight.incrementAndGet();
+            try {
+                extractExecutor.execute(() -> {
+                    try {
+                        final Map<String, List<String>> hosts = Links.byHost(res.extractLinks(), normalize);
+                        final List<String> links = Links.flatten(hosts);
+                        if (cache != null) {
+                            cache.put(x, links);
+                        }
+                        hosts.forEach((host, hostLinks) -> {
+                            for (String link : hostLinks) {
+                                visit(link, remaining - 1, links.size(), Links.NO_HOST.equals(host) ? null : host);
+                            }
+                        });
+                        completed(x, remaining, links);
+                        keep(x, cache != null ? NOT_KEPT : links, remaining);
+                    } catch (IOException e) {
+                        failed(x, e);
+                    } finally {
+                        release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                failed(x, toIOException(e));
+                release();
+            }
+            return true;
+        }
+
+        private void completed(String x, int remaining, List<String> links) {
+            if (journal != null) {
+                record(() -> journal.downloaded(x, remaining));
+            } else {
+                depths.complete(x, remaining);
+            }
+            emit(new CrawlEvent(x, depth - remaining + 1, links, null));
+        }
+
+        private void failed(String x, IOException e) {
+            if (listener == null) {
+                errors.put(x, e);
+            }
+            recordError(e);
+            record(() -> journal.failed(x, e));
+            final int remaining = depths.get(x);
+            emit(new CrawlEvent(x, depth - (remaining == 0 ? depth : remaining) + 1, null, e));
+        }
+
+        private void emit(CrawlEvent event) {
+            if (listener != null && !cancelled && !listener.test(event)) {
+                cancelled = true;
+            }
+        }
+
+        /**
+         * Writes record to the journal, if any.
+         */
+        private void record(JournalRecord record) {
+            if (journal == null || journalError != null) {
+                return;
+            }
+            try {
+                record.write();
+            } catch (IOException e) {
+                journalFailed(e);
+            }
+        }
+
+        /**
+         * Stops the crawl after the first journal error, as the crawl state is kept by the journal.
+         */
+        private void journalFailed(IOException e) {
+            if (journalError == null) {
+                journalError = e;
+            }
+            cancelled = true;
+        }
+
+        private void release() {
+            if (inFlight.decrementAndGet() == 0) {
+                finished.complete(null);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface JournalRecord {
+        void write() throws IOException;
+    }
+
+    /**
+     * Crawl mode.
+     */
+    public enum Mode {
+        /**
+         * Depth layers are crawled one after another, next layer starts when the previous one is complete.
+         */
+        LAYERED,
+        /**
+         * Links are downloaded as soon as they are extracted, without waiting for other pages of the same layer.
+         */
+        PIPELINED,
+        /**
+         * Same as {@link #PIPELINED}, but downloads are started through {@link AsyncDownloader},
+         * so the number of downloads in progress is not limited by the number of threads.
+         * Plain {@link Downloader} is run on threads created on demand, one per download in progress.
+         */
+        ASYNC
+    }
 }
@@ -0,0 +1,71 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.ja.ponomarenko.base.Utils;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Benchmark of {@link WebCrawler} modes on {@link LocalDownloader generated site} with artificial latency.
+ * For each mode reports downloaded pages per second and peak number of live threads.
+ * {@link WebCrawler.Mode#ASYNC Asynchronous} mode is measured both with asynchronous and with plain downloader.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class WebCrawlerBenchmark {
+    private static final String USAGE = "WebCrawlerBenchmark <pages> <depth> <latency> <downloaders>";
+    private static final int HOSTS = 100;
+    private static final int LINKS = 5;
+    private static final int EXTRACTORS = 4;
+
+    private final int depth;
+    private final int downloaders;
+    private final LocalDownloader downloader;
+
+    private WebCrawlerBenchmark(int pages, int depth, long latency, int downloaders) {
+        this.depth = depth;
+        this.downloaders = downloaders;
+        downloader = new LocalDownloader(pages, HOSTS, LINKS, latency);
+    }
+
+    /**
+     * Main method for {@link WebCrawlerBenchmark}.
+     * Usage: {@code WebCrawlerBenchmark <pages> <depth> <latency> <downloaders>}
+     * <p>
+     * {@code pages} - number of pages of the site, for example {@code 10000}
+     * {@code depth} - crawl depth, for example {@code 8}
+     * {@code latency} - download latency in milliseconds, for example {@code 50}
+     * {@code downloaders} - number of downloaders or, in asynchronous mode, of downloads in progress
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (!Utils.checkArgs(args, 4, USAGE) || !Utils.checkIntegers(args, 0, 1, 2, 3)) {
+            return;
+        }
+        final WebCrawlerBenchmark benchmark = new WebCrawlerBenchmark(Integer.parseInt(args[0]),
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        try (LocalDownloader downloader = benchmark.downloader) {
+            benchmark.measure("layered", WebCrawler.Mode.LAYERED, downloader.blocking());
+            benchmark.measure("pipelined", WebCrawler.Mode.PIPELINED, downloader.blocking());
+            benchmark.measure("async, plain", WebCrawler.Mode.ASYNC, downloader.blocking());
+            benchmark.measure("async", WebCrawler.Mode.ASYNC, downloader);
+        }
+    }
+
+    private void measure(String name, WebCrawler.Mode mode, Downloader pages) {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        final long start = System.nanoTime();
+        final Result result;
+        try (WebCrawler crawler = new WebCrawler(pages, downloaders, EXTRACTORS, downloaders, mode)) {
+            result = crawler.download(downloader.url(0), depth);
+        }
+        final long time = System.nanoTime() - start;
+        System.out.printf("%-14s %8.1f pages/s, pages: %d, errors: %d, peak threads: %d%n",
+                name, result.getDownloaded().size() * 1e9 / time, result.getDownloaded().size(),
+                result.getErrors().size(), threads.getPeakThreadCount());
+    }
+}
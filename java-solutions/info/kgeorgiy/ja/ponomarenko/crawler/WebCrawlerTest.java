@@ -0,0 +1,169 @@
+package info.kgeorgiy.ja.ponomarenko.crawler;
+
+import info.kgeorgiy.java.advanced.crawler.Document;
+import info.kgeorgiy.java.advanced.crawler.Downloader;
+import info.kgeorgiy.java.advanced.crawler.Result;
+import info.kgeorgiy.java.advanced.crawler.URLUtils;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class WebCrawlerTest {
+    private static final int PAGES = 300;
+    private static final int HOSTS = 5;
+    private static final int LINKS = 4;
+    private static final int PER_HOST = 2;
+    private static final int LIMIT = 8;
+    private static final String START = "http://host0.local/0";
+
+    @Test
+    @DisplayName("pipelined crawl terminates with the same result as layered")
+    void pipelined() {
+        try (LocalDownloader downloader = new LocalDownloader(PAGES, HOSTS, LINKS, 0)) {
+            for (int depth = 1; depth <= 4; depth++) {
+                final Result expected = crawl(WebCrawler.Mode.LAYERED, depth, downloader.blocking());
+                final HostCounter counter = new HostCounter(downloader.blocking());
+                assertSame(expected, crawl(WebCrawler.Mode.PIPELINED, depth, counter));
+                Assertions.assertTrue(counter.maxPerHost.get() <= PER_HOST, "per host: " + counter.maxPerHost);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("crawl of failing start page terminates")
+    void error() {
+        try (LocalDownloader downloader = new LocalDownloader(PAGES, HOSTS, LINKS, 0)) {
+            for (WebCrawler.Mode mode : List.of(WebCrawler.Mode.PIPELINED, WebCrawler.Mode.ASYNC)) {
+                try (WebCrawler crawler = new WebCrawler(downloader, LIMIT, 3, PER_HOST, mode)) {
+                    final Result result = crawler.download(LocalDownloader.BROKEN, 3);
+                    Assertions.assertEquals(List.of(), result.getDownloaded());
+                    Assertions.assertEquals(Set.of(LocalDownloader.BROKEN), result.getErrors().keySet());
+                    Assertions.assertEquals(List.of(), crawler.download(START, 0).getDownloaded());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("async crawl terminates with the same result as layered")
+    void async() {
+        try (LocalDownloader downloader = new LocalDownloader(PAGES, HOSTS, LINKS, 1)) {
+            for (int depth = 1; depth <= 4; depth++) {
+                final Result expected = crawl(WebCrawler.Mode.LAYERED, depth, downloader.blocking());
+                assertSame(expected, crawl(WebCrawler.Mode.ASYNC, depth, downloader));
+                final HostCounter counter = new HostCounter(downloader.blocking());
+                assertSame(expected, crawl(WebCrawler.Mode.ASYNC, depth, counter));
+                Assertions.assertTrue(counter.maxPerHost.get() <= PER_HOST, "per host: " + counter.maxPerHost);
+                Assertions.assertTrue(counter.maxRunning.get() <= LIMIT, "running: " + counter.maxRunning);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("URL normalization is opt-in")
+    void normalization() {
+        final List<String> variants = List.of("http://HOST0.local/1#top", "http://host0.local:80/1");
+        final Downloader downloader = url -> () -> url.startsWith(START) ? variants : List.of();
+        for (WebCrawler.Mode mode : WebCrawler.Mode.values()) {
+            try (WebCrawler crawler = new WebCrawler(downloader, LIMIT, 3, PER_HOST, mode)) {
+                Assertions.assertEquals(Set.of(START + "#start", variants.get(0), variants.get(1)),
+                        Set.copyOf(crawler.download(START + "#start", 2).getDownloaded()));
+            }
+            try (WebCrawler crawler = new WebCrawler(downloader, LIMIT, 3, PER_HOST, mode,
+                    VisitedSet::strings, null, true)) {
+                Assertions.assertEquals(Set.of(START, "http://host0.local/1"),
+                        Set.copyOf(crawler.download(START + "#start", 2).getDownloaded()));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("journaled crawl spills frontier and resumes without downloads")
+    void journaled(@TempDir Path directory) throws IOException {
+        // Frontier of the site is larger than in-memory limit
+        try (LocalDownloader downloader = new LocalDownloader(20_000, HOSTS, 6, 0)) {
+            final int depth = 6;
+            final Result expected = crawl(WebCrawler.Mode.LAYERED, depth, downloader.blocking());
+            for (WebCrawler.Mode mode : List.of(WebCrawler.Mode.PIPELINED, WebCrawler.Mode.ASYNC)) {
+                final Path journal = directory.resolve(mode.toString());
+                try (WebCrawler crawler = new WebCrawler(downloader, LIMIT, 3, PER_HOST, mode)) {
+                    assertSame(expected, crawler.download(START, depth, journal));
+                    Files.writeString(journal.resolve("journal.log"), "V\t" + depth + "\thttp://host0.local/torn",
+                            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+                    final long downloads = downloader.downloads();
+                    assertSame(expected, crawler.download(START, depth, journal));
+                    Assertions.assertEquals(downloads, downloader.downloads(), "resumed crawl should download nothing");
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("crawl terminates when crawler is closed")
+    void close() throws InterruptedException {
+        try (LocalDownloader downloader = new LocalDownloader(PAGES, HOSTS, LINKS, 5)) {
+            for (WebCrawler.Mode mode : List.of(WebCrawler.Mode.PIPELINED, WebCrawler.Mode.ASYNC)) {
+                for (Downloader pages : List.of(downloader, downloader.blocking())) {
+                    final WebCrawler crawler = new WebCrawler(pages, 4, 2, PER_HOST, mode);
+                    final Thread crawl = new Thread(() -> crawler.download(START, 10));
+                    crawl.start();
+                    Thread.sleep(50);
+                    crawler.close();
+                    crawl.join(TimeUnit.SECONDS.toMillis(10));
+                    Assertions.assertFalse(crawl.isAlive(), mode + " crawl should terminate after close");
+                }
+            }
+        }
+    }
+
+    private static void assertSame(Result expected, Result actual) {
+        Assertions.assertEquals(new TreeSet<>(expected.getDownloaded()), new TreeSet<>(actual.getDownloaded()));
+        Assertions.assertEquals(expected.getErrors().keySet(), actual.getErrors().keySet());
+    }
+
+    private static Result crawl(WebCrawler.Mode mode, int depth, Downloader downloader) {
+        try (WebCrawler crawler = new WebCrawler(downloader, LIMIT, 3, PER_HOST, mode)) {
+            return crawler.download(START, depth);
+        }
+    }
+
+    /**
+     * Plain downloader counting downloads in progress.
+     */
+    private static class HostCounter implements Downloader {
+        private final Downloader downloader;
+        private final ConcurrentMap<String, AtomicInteger> running = new ConcurrentHashMap<>();
+        private final AtomicInteger total = new AtomicInteger();
+        private final AtomicInteger maxPerHost = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        HostCounter(Downloader downloader) {
+            this.downloader = downloader;
+        }
+
+        @Override
+        public Document download(String url) throws IOException {
+            final AtomicInteger hostRunning = running.computeIfAbsent(URLUtils.getHost(url), h -> new AtomicInteger());
+            maxPerHost.accumulateAndGet(hostRunning.incrementAndGet(), Math::max);
+            maxRunning.accumulateAndGet(total.incrementAndGet(), Math::max);
+            try {
+                return downloader.download(url);
+            } finally {
+                total.decrementAndGet();
+                hostRunning.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters of hello servers and clients.
+ * Counters are striped, so updating them from many threads does not cause contention.
+ * Can be published to the platform MBean server.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class HelloMetrics implements HelloMetricsMBean {
+    private static final String DOMAIN = "info.kgeorgiy.ja.ponomarenko.hello";
+    private static final AtomicInteger IDS = new AtomicInteger();
+    final LongAdder received = new LongAdder();
+    final LongAdder sent = new LongAdder();
+    final LongAdder invalid = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder timeouts = new LongAdder();
+    final LongAdder retransmits = new LongAdder();
+    final LongAdder failures = new LongAdder();
+    private volatile IntSupplier queueDepth = () -> 0;
+    private ObjectName name;
+
+    @Override
+    public long getReceived() {
+        return received.sum();
+    }
+
+    @Override
+    public long getSent() {
+        return sent.sum();
+    }
+
+    @Override
+    public long getInvalid() {
+        return invalid.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getRetransmits() {
+        return retransmits.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    /**
+     * Sets source of queue depth.
+     *
+     * @param queueDepth current queue depth supplier
+     */
+    void setQueueDepth(IntSupplier queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Registers metrics in the platform MBean server.
+     * Registration errors are reported and otherwise ignored.
+     *
+     * @param type type of metrics owner
+     */
+    synchronized void register(String type) {
+        try {
+            name = new ObjectName(DOMAIN + ":type=" + type + ",id=" + IDS.incrementAndGet());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Warning: can't register metrics: " + e.getMessage());
+            name = null;
+        }
+    }
+
+    /**
+     * Unregisters metrics from the platform MBean server, if they were registered.
+     */
+    synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Warning: can't unregister metrics: " + e.getMessage());
+        }
+        name = null;
+    }
+}
@@ -0,0 +1,68 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+/**
+ * Management interface of {@link HelloMetrics}.
+ *
+ * @author Ponomarenko Ilya
+ */
+public interface HelloMetricsMBean {
+    /**
+     * Returns number of received packets.
+     *
+     * @return number of received packets
+     */
+    long getReceived();
+
+    /**
+     * Returns number of sent packets.
+     *
+     * @return number of sent packets
+     */
+    long getSent();
+
+    /**
+     * Returns number of received packets that are not valid responses.
+     *
+     * @return number of invalid packets
+     */
+    long getInvalid();
+
+    /**
+     * Returns number of I/O errors.
+     *
+     * @return number of I/O errors
+     */
+    long getErrors();
+
+    /**
+     * Returns number of response waits that timed out.
+     *
+     * @return number of timeouts
+     */
+    long getTimeouts();
+
+    /**
+     * Returns number of retransmitted requests.
+     *
+     * @return number of retransmissions
+     */
+    long getRetransmits();
+
+    /**
+     * Returns number of requests given up after exhausting retry budget.
+     *
+     * @return number of failed requests
+     */
+    long getFailures();
+
+    /**
+     * Returns number of packets waiting to be handled by the application.
+     * Only {@link HelloUDPNonblockingServer} has such a queue, of responses waiting to be sent.
+     * Blocking server handles each packet on the thread that received it, and the depth of
+     * the kernel receive queue can't be read through {@link java.net.DatagramSocket}, so it reports {@code 0},
+     * as clients do.
+     *
+     * @return current queue depth
+     */
+    int getQueueDepth();
+}
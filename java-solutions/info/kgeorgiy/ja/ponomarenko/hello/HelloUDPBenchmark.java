@@ -0,0 +1,208 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import info.kgeorgiy.ja.ponomarenko.base.LatencyHistogram;
+import info.kgeorgiy.ja.ponomarenko.base.Utils;
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for hello servers.
+ * Sends requests at the given rate regardless of responses,
+ * records latency of each response into {@link LatencyHistogram} and reports throughput and loss.
+ * Latency is measured from the time request was scheduled to be sent,
+ * so delays of a sender falling behind the schedule are not hidden.
+ * Nothing is printed per request.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class HelloUDPBenchmark {
+    private static final String USAGE = "HelloUDPBenchmark <host> <port> <threads> <rate> <seconds> [server [serverThreads]]";
+    private static final byte[] PREFIX = "bench_".getBytes(StandardCharsets.UTF_8);
+    /**
+     * Time to wait for late responses after all requests are sent and scheduled.
+     */
+    private static final long DRAIN_TIME = TimeUnit.SECONDS.toNanos(1);
+    private static final int RECEIVE_TIMEOUT = 100;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+
+    private HelloUDPBenchmark() {
+    }
+
+    /**
+     * Main method for {@link HelloUDPBenchmark}.
+     * Usage: {@code HelloUDPBenchmark <host> <port> <threads> <rate> <seconds> [server [serverThreads]]}
+     * <p>
+     * {@code host} - host to send requests to
+     * {@code port} - port to send requests to
+     * {@code threads} - number of sending threads, each with its own socket
+     * {@code rate} - total offered load, requests per second
+     * {@code seconds} - duration of the load
+     * {@code server} - server to start locally on {@code port}:
+     * {@code blocking}, {@code sharded} or {@code nonblocking}, none by default
+     * {@code serverThreads} - number of server threads, {@code threads} by default
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (!Utils.checkArgs(args, 5, 7, USAGE) || !Utils.checkIntegers(args, 1, 2, 3, 4)) {
+            return;
+        }
+        final String host = args[0];
+        final int port = Integer.parseInt(args[1]);
+        final int threads = Integer.parseInt(args[2]);
+        final int rate = Integer.parseInt(args[3]);
+        final int seconds = Integer.parseInt(args[4]);
+        if (threads <= 0 || rate <= 0 || seconds <= 0) {
+            System.err.println("Error: threads, rate and seconds should be positive");
+            return;
+        }
+        if ((long) rate * seconds < threads) {
+            System.err.println("Error: less than one request per thread, increase rate or seconds");
+            return;
+        }
+        final int serverThreads = Utils.parseOrDefault(args, 6, threads, "serverThreads");
+        final HelloServer server = args.length > 5 ? createServer(args[5]) : null;
+        if (args.length > 5 && server == null) {
+            System.err.println("Error: unknown server " + args[5]);
+            return;
+        }
+        try {
+            if (server != null) {
+                server.start(port, serverThreads);
+            }
+            final HelloUDPBenchmark benchmark = new HelloUDPBenchmark();
+            final long elapsed = benchmark.run(new InetSocketAddress(InetAddress.getByName(host), port), threads, rate, seconds);
+            benchmark.report(elapsed);
+        } catch (UnknownHostException e) {
+            System.err.println("Error: unknown host " + host);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static HelloServer createServer(String name) {
+        return switch (name) {
+            case "blocking" -> new HelloUDPServer();
+            case "sharded" -> new HelloUDPServer(true, 0);
+            case "nonblocking" -> new HelloUDPNonblockingServer();
+            default -> null;
+        };
+    }
+
+    private long run(SocketAddress address, int threads, int rate, int seconds) throws InterruptedException {
+        final int requests = (int) Math.min(Integer.MAX_VALUE - 1, (long) rate * seconds / threads);
+        final long interval = threads * TimeUnit.SECONDS.toNanos(1) / rate;
+        final List<Thread> workers = new ArrayList<>();
+        final long start = System.nanoTime();
+        for (int i = 1; i <= threads; i++) {
+            final DatagramSocket socket;
+            try {
+                socket = new DatagramSocket();
+                socket.setSoTimeout(RECEIVE_TIMEOUT);
+            } catch (SocketException e) {
+                System.err.println("Error: " + e.getMessage());
+                continue;
+            }
+            final int thread = i;
+            final Thread sender = new Thread(() -> send(socket, address, thread, requests, interval, start));
+            workers.add(sender);
+            workers.add(new Thread(() -> {
+                try (socket) {
+                    receive(socket, sender, thread, requests, interval, start);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void send(DatagramSocket socket, SocketAddress address, int thread, int requests,
+                      long interval, long start) {
+        final DatagramPacket packet = new DatagramPacket(new byte[0], 0);
+        final ByteBuffer request = ByteBuffer.allocate(PREFIX.length + 2 * Requests.MAX_INT_LENGTH + 1);
+        for (int j = 1; j <= requests && !socket.isClosed(); j++) {
+            final long wait = start + (j - 1) * interval - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Requests.putRequest(request, PREFIX, thread, j);
+            try {
+                Requests.send(socket, packet, request, address);
+                sent.increment();
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Receives responses until all are received or {@link #DRAIN_TIME} passes
+     * after both the schedule and the sender are finished.
+     */
+    private void receive(DatagramSocket socket, Thread sender, int thread, int requests, long interval, long start) {
+        final LatencyHistogram local = new LatencyHistogram();
+        final byte[] header = Requests.responseHeader(PREFIX, thread);
+        final boolean[] answered = new boolean[requests + 1];
+        final DatagramPacket packet = new DatagramPacket(new byte[0], 0);
+        try {
+            final ByteBuffer response = ByteBuffer.allocate(Requests.MAX_DATAGRAM);
+            int count = 0;
+            long deadline = start + requests * interval + DRAIN_TIME;
+            boolean sent = false;
+            while (count < requests) {
+                if (!sent && !sender.isAlive()) {
+                    sent = true;
+                    deadline = Math.max(deadline, System.nanoTime() + DRAIN_TIME);
+                }
+                if (sent && System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+                try {
+                    Requests.receive(socket, packet, response);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                final int j = Requests.parseRequestNumber(response, header);
+                if (0 < j && j <= requests && !answered[j]) {
+                    local.record(System.nanoTime() - (start + (j - 1) * interval));
+                    answered[j] = true;
+                    count++;
+                }
+            }
+            received.add(count);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        } finally {
+            latencies.add(local);
+        }
+    }
+
+    private void report(long elapsed) {
+        final long sentCnt = sent.sum();
+        final long receivedCnt = received.sum();
+        System.out.printf("Sent: %d, received: %d, loss: %.3f%%, throughput: %.1f responses/s%n",
+                sentCnt, receivedCnt, sentCnt == 0 ? 0.0 : 100.0 * (sentCnt - receivedCnt) / sentCnt,
+                receivedCnt * 1e9 / elapsed);
+        System.out.printf("Latency p50: %.3f ms, p99: %.3f ms, p99.9: %.3f ms, max: %.3f ms%n",
+                latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6,
+                latencies.percentile(99.9) / 1e6, latencies.max() / 1e6);
+    }
+}
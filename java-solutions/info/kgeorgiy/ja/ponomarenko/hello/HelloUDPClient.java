@@ -1,14 +1,16 @@
 package info.kgeorgiy.ja.ponomarenko.hello;
 
+import info.kgeorgiy.ja.ponomarenko.base.LatencyHistogram;
 import info.kgeorgiy.ja.ponomarenko.base.Utils;
 import info.kgeorgiy.java.advanced.hello.HelloClient;
 
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.IntStream;
 
 
 /**
@@ -18,22 +20,66 @@ import java.util.stream.IntStream;
  */
 public class HelloUDPClient implements HelloClient {
     public static final long REQUEST_FACT = 5L;
-    private static final String USAGE = "HelloUDPClient <host> <port> <prefix> <threads> <requests>";
+    private static final String USAGE = "HelloUDPClient <host> <port> <prefix> <threads> <requests> [window [retries]]";
+    private static final long INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(44);
+    private static final int LOG_LIMIT = 10;
+    private final int window;
+    private final int maxRetries;
+    private final HelloMetrics metrics = new HelloMetrics();
+    private final RateLimitedLog log = new RateLimitedLog(LOG_LIMIT);
+
+    /**
+     * Creates a stop-and-wait client, sending next request only after response to previous one.
+     */
+    public HelloUDPClient() {
+        this(1);
+    }
+
+    /**
+     * Creates a client keeping up to {@code window} requests in flight in each thread.
+     *
+     * @param window maximum number of requests in flight per thread
+     * @throws IllegalArgumentException if {@code window <= 0}
+     */
+    public HelloUDPClient(int window) throws IllegalArgumentException {
+        this(window, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a client keeping up to {@code window} requests in flight in each thread
+     * and giving up on request after {@code maxRetries} retransmissions.
+     *
+     * @param window     maximum number of requests in flight per thread
+     * @param maxRetries maximum number of retransmissions of one request
+     * @throws IllegalArgumentException if {@code window <= 0} or {@code maxRetries < 0}
+     */
+    public HelloUDPClient(int window, int maxRetries) throws IllegalArgumentException {
+        if (window <= 0) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Number of retries must be non-negative");
+        }
+        this.window = window;
+        this.maxRetries = maxRetries;
+    }
 
     /**
      * Main method for {@link HelloUDPClient}.
-     * Usage: {@code HelloUDPClient <host> <port> <prefix> <threads> <requests>}
+     * Usage: {@code HelloUDPClient <host> <port> <prefix> <threads> <requests> [window [retries]]}
      * <p>
      * {@code host} - host to send requests to
      * {@code port} - port to send requests to
      * {@code prefix} - prefix of requests
      * {@code threads} - number of threads to send requests from
      * {@code requests} - number of requests to send from each thread
+     * {@code window} - number of requests in flight per thread, {@code 1} by default
+     * {@code retries} - maximum number of retransmissions of one request, unlimited by default
      *
      * @param args command line arguments
      */
     public static void main(String[] args) {
-        if (!Utils.checkArgs(args, 5, USAGE) || !Utils.checkIntegers(args, 1, 3, 4)) {
+        if (!Utils.checkArgs(args, 5, 7, USAGE) || !Utils.checkIntegers(args, 1, 3, 4)) {
             return;
         }
         String host = args[0];
@@ -41,7 +87,9 @@ public class HelloUDPClient implements HelloClient {
         String prefix = args[2];
         int threads = Integer.parseInt(args[3]);
         int requests = Integer.parseInt(args[4]);
-        new HelloUDPClient().run(host, port, prefix, threads, requests);
+        int window = Utils.parseOrDefault(args, 5, 1, "window");
+        int retries = Utils.parseOrDefault(args, 6, Integer.MAX_VALUE, "retries");
+        new HelloUDPClient(window, retries).run(host, port, prefix, threads, requests);
     }
 
     @Override
@@ -53,57 +101,290 @@ public class HelloUDPClient implements HelloClient {
             System.err.println("Error: unknown host " + host);
             return;
         }
+        final byte[] encodedPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+        final SocketAddress socketAddress = new InetSocketAddress(address, port);
+        final RttEstimator estimator = new RttEstimator(INITIAL_TIMEOUT);
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final long start = System.nanoTime();
+        metrics.register("HelloUDPClient");
         ExecutorService executorService = Executors.newFixedThreadPool(threads);
         for (int i = 1; i <= threads; i++) {
-            executorService.submit(new DoRequest(i, requests, prefix, address, port));
+            executorService.submit(window == 1
+                    ? new DoRequest(i, requests, encodedPrefix, socketAddress, estimator, latencies)
+                    : new WindowedRequest(i, requests, encodedPrefix, socketAddress, estimator, latencies));
         }
         Utils.shutdown(executorService, requests * REQUEST_FACT, TimeUnit.SECONDS);
+        metrics.unregister();
+        report(latencies, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns client metrics, accumulated since client creation.
+     * Metrics are published via JMX while {@link #run} is in progress.
+     *
+     * @return client metrics
+     */
+    public HelloMetricsMBean getMetrics() {
+        return metrics;
     }
 
-    private static class DoRequest implements Runnable {
-        private static final int TIMEOUT = 44;
+    /**
+     * Returns number of retransmitted requests.
+     *
+     * @return number of retransmissions since client creation
+     */
+    public long getRetransmits() {
+        return metrics.getRetransmits();
+    }
+
+    /**
+     * Returns number of response waits that timed out.
+     *
+     * @return number of timeouts since client creation
+     */
+    public long getTimeouts() {
+        return metrics.getTimeouts();
+    }
+
+    /**
+     * Returns number of requests given up after exhausting retry budget.
+     *
+     * @return number of failed requests since client creation
+     */
+    public long getFailures() {
+        return metrics.getFailures();
+    }
+
+    private void report(LatencyHistogram latencies, long elapsed) {
+        System.out.printf("Responses: %d, goodput: %.1f responses/s, retransmits: %d, timeouts: %d, failures: %d%n",
+                latencies.count(), latencies.count() * 1e9 / elapsed,
+                metrics.getRetransmits(), metrics.getTimeouts(), metrics.getFailures());
+        System.out.printf("Latency p50: %.3f ms, p90: %.3f ms, p99: %.3f ms, max: %.3f ms%n",
+                latencies.percentile(50) / 1e6, latencies.percentile(90) / 1e6,
+                latencies.percentile(99) / 1e6, latencies.max() / 1e6);
+    }
+
+    private static int toMillis(long nanos) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (nanos + 999_999) / 1_000_000));
+    }
+
+    private class DoRequest implements Runnable {
         final int i;
         final int requests;
-        final int port;
-        final String prefix;
+        final byte[] prefix;
         private final SocketAddress socketAddress;
-        private int size;
+        private final RttEstimator estimator;
+        private final LatencyHistogram latencies;
+        private final LatencyHistogram local = new LatencyHistogram();
+        private final DatagramPacket packet = new DatagramPacket(new byte[0], 0);
+        private ByteBuffer request;
+        private ByteBuffer response;
         private DatagramSocket socket;
 
-        public DoRequest(int i, int requests, String prefix, InetAddress address, int port) {
+        public DoRequest(int i, int requests, byte[] prefix, SocketAddress socketAddress,
+                         RttEstimator estimator, LatencyHistogram latencies) {
             this.i = i;
             this.requests = requests;
             this.prefix = prefix;
-            this.port = port;
-            socketAddress = new InetSocketAddress(address, port);
+            this.socketAddress = socketAddress;
+            this.estimator = estimator;
+            this.latencies = latencies;
         }
 
         @Override
         public void run() {
             try (var datagramSocket = new DatagramSocket()) {
                 socket = datagramSocket;
-                socket.setSoTimeout(TIMEOUT);
-                size = socket.getReceiveBufferSize();
-                IntStream.range(1, requests + 1).mapToObj(j -> prefix + i + "_" + j).forEach(this::sendAndReceive);
+                request = ByteBuffer.allocate(prefix.length + 2 * Requests.MAX_INT_LENGTH + 1);
+                response = ByteBuffer.allocate(socket.getReceiveBufferSize());
+                for (int j = 1; j <= requests; j++) {
+                    Requests.putRequest(request, prefix, i, j);
+                    sendAndReceive();
+                }
             } catch (SocketException e) {
                 System.err.println("Error: " + e.getMessage());
+            } finally {
+                latencies.add(local);
             }
         }
 
-        private void sendAndReceive(String request) {
-            while (!socket.isClosed()) {
+        private void sendAndReceive() {
+            final long firstSent = System.nanoTime();
+            for (int attempt = 0; !socket.isClosed(); attempt++) {
+                if (attempt > maxRetries) {
+                    metrics.failures.increment();
+                    return;
+                }
+                if (attempt > 0) {
+                    metrics.retransmits.increment();
+                }
+                final long sent = System.nanoTime();
                 try {
-                    Requests.send(socket, socketAddress, request);
-                    String response = Requests.packetToString(Requests.receive(socket, size));
-                    if (response.equals("Hello, " + request)) {
-                        System.out.println("Received: " + response);
-                        break;
+                    Requests.send(socket, packet, request, socketAddress);
+                    metrics.sent.increment();
+                } catch (IOException e) {
+                    metrics.errors.increment();
+                    log.error(e.getMessage());
+                    continue;
+                }
+                if (receive(sent + estimator.timeout(attempt))) {
+                    final long now = System.nanoTime();
+                    if (attempt == 0) {
+                        estimator.sample(now - sent);
                     }
-                } catch (SocketTimeoutException ignored) {
+                    local.record(now - firstSent);
+                    System.out.println("Received: " + Requests.toString(response));
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Receives until response to current request arrives or deadline of the attempt passes.
+         * Stale and invalid responses are skipped without starting a new attempt.
+         */
+        private boolean receive(long deadline) {
+            for (long wait = deadline - System.nanoTime(); wait > 0 && !socket.isClosed(); wait = deadline - System.nanoTime()) {
+                try {
+                    socket.setSoTimeout(toMillis(wait));
+                    Requests.receive(socket, packet, response);
+                    metrics.received.increment();
+                    if (Requests.isResponse(response, request)) {
+                        return true;
+                    }
+                    metrics.invalid.increment();
+                } catch (SocketTimeoutException e) {
+                    break;
                 } catch (IOException e) {
-                    System.err.println("Error: " + e.getMessage());
+                    metrics.errors.increment();
+                    log.error(e.getMessage());
+                    return false;
                 }
             }
+            metrics.timeouts.increment();
+            return false;
+        }
+    }
+
+    private class WindowedRequest implements Runnable {
+        final int i;
+        final int requests;
+        final byte[] prefix;
+        final byte[] header;
+        private final SocketAddress socketAddress;
+        private final RttEstimator estimator;
+        private final LatencyHistogram latencies;
+        private final DatagramPacket packet = new DatagramPacket(new byte[0], 0);
+        /**
+         * Request numbers in flight, {@code 0} for free slot.
+         */
+        private final int[] slots = new int[window];
+        private final int[] attempts = new int[window];
+        private final long[] firstSent = new long[window];
+        private final long[] deadlines = new long[window];
+        private ByteBuffer request;
+        private DatagramSocket socket;
+
+        public WindowedRequest(int i, int requests, byte[] prefix, SocketAddress socketAddress,
+                               RttEstimator estimator, LatencyHistogram latencies) {
+            this.i = i;
+            this.requests = requests;
+            this.prefix = prefix;
+            this.socketAddress = socketAddress;
+            this.estimator = estimator;
+            this.latencies = latencies;
+            header = Requests.responseHeader(prefix, i);
+        }
+
+        @Override
+        public void run() {
+            final LatencyHistogram local = new LatencyHistogram();
+            try (var datagramSocket = new DatagramSocket()) {
+                socket = datagramSocket;
+                request = ByteBuffer.allocate(prefix.length + 2 * Requests.MAX_INT_LENGTH + 1);
+                final ByteBuffer response = ByteBuffer.allocate(socket.getReceiveBufferSize());
+                int next = 1;
+                int completed = 0;
+                while (completed < requests && !socket.isClosed() && !Thread.currentThread().isInterrupted()) {
+                    final long now = System.nanoTime();
+                    long wait = Long.MAX_VALUE;
+                    for (int k = 0; k < slots.length; k++) {
+                        if (slots[k] != 0 && deadlines[k] - now <= 0) {
+                            if (attempts[k] > maxRetries) {
+                                metrics.failures.increment();
+                                slots[k] = 0;
+                                completed++;
+                            } else {
+                                metrics.retransmits.increment();
+                                send(k, now);
+                            }
+                        }
+                        if (slots[k] == 0 && next <= requests) {
+                            slots[k] = next++;
+                            attempts[k] = 0;
+                            firstSent[k] = now;
+                            send(k, now);
+                        }
+                        if (slots[k] != 0) {
+                            wait = Math.min(wait, deadlines[k] - now);
+                        }
+                    }
+                    if (wait == Long.MAX_VALUE) {
+                        continue;
+                    }
+                    try {
+                        socket.setSoTimeout(toMillis(wait));
+                        Requests.receive(socket, packet, response);
+                        metrics.received.increment();
+                        final int k = slot(Requests.parseRequestNumber(response, header));
+                        if (k < 0) {
+                            metrics.invalid.increment();
+                        } else {
+                            final long latency = System.nanoTime() - firstSent[k];
+                            if (attempts[k] == 1) {
+                                estimator.sample(latency);
+                            }
+                            local.record(latency);
+                            slots[k] = 0;
+                            completed++;
+                            System.out.println("Received: " + Requests.toString(response));
+                        }
+                    } catch (SocketTimeoutException e) {
+                        metrics.timeouts.increment();
+                    } catch (IOException e) {
+                        metrics.errors.increment();
+                        log.error(e.getMessage());
+                    }
+                }
+            } catch (SocketException e) {
+                System.err.println("Error: " + e.getMessage());
+            } finally {
+                latencies.add(local);
+            }
+        }
+
+        private int slot(int number) {
+            if (number <= 0) {
+                return -1;
+            }
+            for (int k = 0; k < slots.length; k++) {
+                if (slots[k] == number) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        private void send(int k, long now) {
+            deadlines[k] = now + estimator.timeout(attempts[k]++);
+            Requests.putRequest(request, prefix, i, slots[k]);
+            try {
+                Requests.send(socket, packet, request, socketAddress);
+                metrics.sent.increment();
+            } catch (IOException e) {
+                metrics.errors.increment();
+                log.error(e.getMessage());
+            }
         }
     }
 }
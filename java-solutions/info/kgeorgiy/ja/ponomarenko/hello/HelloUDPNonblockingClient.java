@@ -0,0 +1,274 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import info.kgeorgiy.ja.ponomarenko.base.Utils;
+import info.kgeorgiy.java.advanced.hello.HelloClient;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking implementation for {@link HelloClient} interface.
+ * Each logical client has its own {@link DatagramChannel},
+ * all channels are driven by a fixed number of event loop threads through {@link Selector selectors}.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class HelloUDPNonblockingClient implements HelloClient {
+    private static final String USAGE = "HelloUDPNonblockingClient <host> <port> <prefix> <threads> <requests> [loops]";
+    private static final long INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(44);
+    private static final int LOG_LIMIT = 10;
+    private final int loops;
+    private final HelloMetrics metrics = new HelloMetrics();
+    private final RateLimitedLog log = new RateLimitedLog(LOG_LIMIT);
+
+    /**
+     * Creates a client with one event loop thread.
+     */
+    public HelloUDPNonblockingClient() {
+        this(1);
+    }
+
+    /**
+     * Creates a client with the given number of event loop threads.
+     *
+     * @param loops number of event loop threads
+     * @throws IllegalArgumentException if {@code loops <= 0}
+     */
+    public HelloUDPNonblockingClient(int loops) throws IllegalArgumentException {
+        if (loops <= 0) {
+            throw new IllegalArgumentException("Number of loops must be positive");
+        }
+        this.loops = loops;
+    }
+
+    /**
+     * Main method for {@link HelloUDPNonblockingClient}.
+     * Usage: {@code HelloUDPNonblockingClient <host> <port> <prefix> <threads> <requests> [loops]}
+     * <p>
+     * {@code host} - host to send requests to
+     * {@code port} - port to send requests to
+     * {@code prefix} - prefix of requests
+     * {@code threads} - number of logical clients
+     * {@code requests} - number of requests to send from each logical client
+     * {@code loops} - number of event loop threads, {@code 1} by default
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (!Utils.checkArgs(args, 5, 6, USAGE) || !Utils.checkIntegers(args, 1, 3, 4)) {
+            return;
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        String prefix = args[2];
+        int threads = Integer.parseInt(args[3]);
+        int requests = Integer.parseInt(args[4]);
+        int loops = Utils.parseOrDefault(args, 5, 1, "loops");
+        new HelloUDPNonblockingClient(loops).run(host, port, prefix, threads, requests);
+    }
+
+    @Override
+    public void run(String host, int port, String prefix, int threads, int requests) {
+        InetAddress address;
+        try {
+            address = InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            System.err.println("Error: unknown host " + host);
+            return;
+        }
+        final byte[] encodedPrefix = prefix.getBytes(StandardCharsets.UTF_8);
+        final SocketAddress socketAddress = new InetSocketAddress(address, port);
+        final RttEstimator estimator = new RttEstimator(INITIAL_TIMEOUT);
+        final int loopsCnt = Math.min(loops, threads);
+        metrics.register("HelloUDPNonblockingClient");
+        ExecutorService executorService = Executors.newFixedThreadPool(loopsCnt);
+        for (int loop = 0; loop < loopsCnt; loop++) {
+            executorService.submit(new EventLoop(loop, loopsCnt, threads, requests, encodedPrefix, socketAddress, estimator));
+        }
+        Utils.shutdown(executorService, requests * HelloUDPClient.REQUEST_FACT, TimeUnit.SECONDS);
+        metrics.unregister();
+    }
+
+    /**
+     * Returns client metrics, accumulated since client creation.
+     * Metrics are published via JMX while {@link #run} is in progress.
+     *
+     * @return client metrics
+     */
+    public HelloMetricsMBean getMetrics() {
+        return metrics;
+    }
+
+    private class EventLoop implements Runnable {
+        final int first;
+        final int step;
+        final int threads;
+        final int requests;
+        final byte[] prefix;
+        private final SocketAddress socketAddress;
+        private final RttEstimator estimator;
+        private long nextDeadline = Long.MAX_VALUE;
+
+        EventLoop(int first, int step, int threads, int requests, byte[] prefix,
+                  SocketAddress socketAddress, RttEstimator estimator) {
+            this.first = first;
+            this.step = step;
+            this.threads = threads;
+            this.requests = requests;
+            this.prefix = prefix;
+            this.socketAddress = socketAddress;
+            this.estimator = estimator;
+        }
+
+        @Override
+        public void run() {
+            try (Selector selector = Selector.open()) {
+                try {
+                    loop(selector);
+                } finally {
+                    for (SelectionKey key : selector.keys()) {
+                        close(key);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+            }
+        }
+
+        private void loop(Selector selector) throws IOException {
+            int remaining = 0;
+            int size = 0;
+            for (int i = first + 1; i <= threads && requests > 0; i += step) {
+                final DatagramChannel channel = open(selector, i);
+                channel.connect(socketAddress);
+                channel.keyFor(selector).interestOps(SelectionKey.OP_WRITE);
+                size = Math.max(size, channel.socket().getReceiveBufferSize());
+                remaining++;
+            }
+            final ByteBuffer response = ByteBuffer.allocate(size);
+            while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+                final long wait = nextDeadline - System.nanoTime();
+                selector.select(wait <= 0 ? 1 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        if (key.isWritable()) {
+                            write(key);
+                        } else if (key.isReadable() && read(key, response)) {
+                            key.channel().close();
+                            remaining--;
+                        }
+                    } catch (IOException e) {
+                        metrics.errors.increment();
+                        log.error(e.getMessage());
+                    }
+                }
+                selector.selectedKeys().clear();
+                if (System.nanoTime() - nextDeadline >= 0) {
+                    retransmit(selector);
+                }
+            }
+        }
+
+        /**
+         * Opens channel of logical client and registers it right away,
+         * so it is closed with other channels of the selector if anything fails later.
+         */
+        private DatagramChannel open(Selector selector, int i) throws IOException {
+            final DatagramChannel channel = DatagramChannel.open();
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, 0, new Sender(i, ByteBuffer.allocate(prefix.length + 2 * Requests.MAX_INT_LENGTH + 1)));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return channel;
+        }
+
+        private void close(SelectionKey key) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                metrics.errors.increment();
+                log.error(e.getMessage());
+            }
+        }
+
+        private void write(SelectionKey key) throws IOException {
+            final Sender sender = (Sender) key.attachment();
+            Requests.putRequest(sender.request, prefix, sender.i, sender.j);
+            if (((DatagramChannel) key.channel()).write(sender.request) == 0) {
+                return;
+            }
+            metrics.sent.increment();
+            sender.sent = System.nanoTime();
+            sender.deadline = sender.sent + estimator.timeout(sender.attempt);
+            nextDeadline = Math.min(nextDeadline, sender.deadline);
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private boolean read(SelectionKey key, ByteBuffer response) throws IOException {
+            final Sender sender = (Sender) key.attachment();
+            response.clear();
+            ((DatagramChannel) key.channel()).read(response);
+            response.flip();
+            metrics.received.increment();
+            sender.request.rewind();
+            if (!Requests.isResponse(response, sender.request)) {
+                metrics.invalid.increment();
+                return false;
+            }
+            if (sender.attempt == 0) {
+                estimator.sample(System.nanoTime() - sender.sent);
+            }
+            System.out.println("Received: " + Requests.toString(response));
+            sender.j++;
+            sender.attempt = 0;
+            key.interestOps(SelectionKey.OP_WRITE);
+            return sender.j > requests;
+        }
+
+        private void retransmit(Selector selector) {
+            final long now = System.nanoTime();
+            nextDeadline = Long.MAX_VALUE;
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid() && key.interestOps() == SelectionKey.OP_READ) {
+                    final Sender sender = (Sender) key.attachment();
+                    if (sender.deadline - now <= 0) {
+                        metrics.timeouts.increment();
+                        metrics.retransmits.increment();
+                        sender.attempt++;
+                        key.interestOps(SelectionKey.OP_WRITE);
+                    } else {
+                        nextDeadline = Math.min(nextDeadline, sender.deadline);
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Sender {
+        final int i;
+        final ByteBuffer request;
+        int j = 1;
+        int attempt;
+        long sent;
+        long deadline;
+
+        Sender(int i, ByteBuffer request) {
+            this.i = i;
+            this.request = request;
+        }
+    }
+}
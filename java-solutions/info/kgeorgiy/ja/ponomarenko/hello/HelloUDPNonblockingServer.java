@@ -0,0 +1,288 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import info.kgeorgiy.ja.ponomarenko.base.Utils;
+import info.kgeorgiy.java.advanced.hello.HelloServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-blocking implementation for {@link HelloServer} interface.
+ * One I/O thread receives and sends packets through a {@link Selector},
+ * responses are built by a pool of worker threads.
+ * When too many responses are pending, the I/O thread stops reading new packets.
+ * Ready responses are sent in one batch per event loop iteration.
+ * Optionally keeps an LRU cache of responses, answering repeated requests without worker threads.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class HelloUDPNonblockingServer implements HelloServer {
+    private static final String USAGE = "HelloUDPNonblockingServer <port> <threads> [cacheSize]";
+    /**
+     * Maximum number of pending responses per worker thread.
+     */
+    private static final int PENDING_PER_THREAD = 64;
+    private static final int LOG_LIMIT = 10;
+    private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean wakeupRequested = new AtomicBoolean();
+    private final int cacheSize;
+    private final Map<ByteBuffer, ByteBuffer> cache;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final HelloMetrics metrics = new HelloMetrics();
+    private final RateLimitedLog log = new RateLimitedLog(LOG_LIMIT);
+    private ExecutorService listener;
+    private ExecutorService workers;
+    private Selector selector;
+    private DatagramChannel channel;
+    private int capacity;
+
+    /**
+     * Creates a server without response cache.
+     */
+    public HelloUDPNonblockingServer() {
+        this(0);
+    }
+
+    /**
+     * Creates a server caching responses to the given number of most recently used requests.
+     *
+     * @param cacheSize maximum number of cached responses, {@code 0} to disable caching
+     */
+    public HelloUDPNonblockingServer(int cacheSize) {
+        this.cacheSize = cacheSize;
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, ByteBuffer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Main method for {@link HelloUDPNonblockingServer}.
+     * Usage: {@code HelloUDPNonblockingServer <port> <threads> [cacheSize]}
+     * <p>
+     * {@code port} - port to receive requests on
+     * {@code threads} - number of threads to build responses
+     * {@code cacheSize} - maximum number of cached responses, no caching by default
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (!Utils.checkArgs(args, 2, 3, USAGE) || !Utils.checkIntegers(args, 0, 1)) {
+            return;
+        }
+        int port = Integer.parseInt(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        int cacheSize = Utils.parseOrDefault(args, 2, 0, "cacheSize");
+        try (HelloUDPNonblockingServer server = new HelloUDPNonblockingServer(cacheSize);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
+            server.start(port, threads);
+            String line;
+            while ((line = reader.readLine()) != null && !line.equals("stop")) {
+                System.out.println("Type 'stop' if you want to stop the server");
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void start(int port, int threads) {
+        try {
+            selector = Selector.open();
+            channel = DatagramChannel.open();
+            channel.configureBlocking(false);
+            channel.bind(new InetSocketAddress(port));
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        capacity = threads * PENDING_PER_THREAD;
+        workers = Executors.newFixedThreadPool(threads);
+        listener = Executors.newSingleThreadExecutor();
+        listener.execute(this::listen);
+        metrics.setQueueDepth(pending::get);
+        metrics.register("HelloUDPNonblockingServer");
+    }
+
+    private void listen() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Requests.MAX_DATAGRAM);
+        try {
+            while (selector.isOpen() && !Thread.currentThread().isInterrupted()) {
+                selector.select();
+                wakeupRequested.set(false);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        if (key.isReadable()) {
+                            read(buffer);
+                        }
+                    } catch (IOException e) {
+                        metrics.errors.increment();
+                        log.error(e.getMessage());
+                    }
+                }
+                selector.selectedKeys().clear();
+                write();
+                final SelectionKey key = channel.keyFor(selector);
+                if (key != null && key.isValid()) {
+                    key.interestOps((pending.get() < capacity ? SelectionKey.OP_READ : 0)
+                            | (responses.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+                }
+            }
+        } catch (ClosedSelectorException | CancelledKeyException ignored) {
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
+
+    private void read(ByteBuffer buffer) throws IOException {
+        while (pending.get() < capacity) {
+            buffer.clear();
+            final SocketAddress address = channel.receive(buffer);
+            if (address == null) {
+                return;
+            }
+            buffer.flip();
+            metrics.received.increment();
+            if (cacheSize > 0) {
+                final ByteBuffer cached = cache.get(buffer);
+                if (cached != null) {
+                    cacheHits.increment();
+                    pending.incrementAndGet();
+                    responses.add(new Response(address, null, cached));
+                    continue;
+                }
+                cacheMisses.increment();
+            }
+            final ByteBuffer request = ByteBuffer.allocate(buffer.remaining()).put(buffer).flip();
+            pending.incrementAndGet();
+            workers.execute(() -> {
+                final ByteBuffer response = ByteBuffer.allocate(Requests.RESPONSE_PREFIX.length + request.remaining());
+                Requests.putResponse(request, response);
+                responses.add(new Response(address, request, response));
+                if (!wakeupRequested.getAndSet(true)) {
+                    selector.wakeup();
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends ready responses until the socket buffer is full.
+     * Response that can't be sent, for example to unreachable address, is dropped and counted as error.
+     */
+    private void write() {
+        Response response;
+        while ((response = responses.peek()) != null) {
+            try {
+                if (channel.send(response.data().rewind(), response.address()) == 0) {
+                    return;
+                }
+            } catch (IOException e) {
+                responses.poll();
+                pending.decrementAndGet();
+                metrics.errors.increment();
+                log.error("Can't send response to " + response.address() + ": " + e.getMessage());
+                continue;
+            }
+            responses.poll();
+            pending.decrementAndGet();
+            metrics.sent.increment();
+            if (cacheSize > 0 && response.request() != null) {
+                cache.put(response.request(), response.data());
+            }
+        }
+    }
+
+    /**
+     * Returns server metrics.
+     *
+     * @return server metrics
+     */
+    public HelloMetricsMBean getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns number of requests answered from cache.
+     *
+     * @return number of cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Returns number of requests not found in cache.
+     *
+     * @return number of cache misses, {@code 0} if caching is disabled
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Returns share of requests answered from cache.
+     *
+     * @return cache hit rate in range {@code [0, 1]}
+     */
+    public double getCacheHitRate() {
+        final long hits = getCacheHits();
+        final long total = hits + getCacheMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public void close() {
+        metrics.unregister();
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+        if (listener != null) {
+            Utils.shutdown(listener, 10, TimeUnit.MILLISECONDS);
+        }
+        if (workers != null) {
+            Utils.shutdown(workers, 10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Response to send.
+     *
+     * @param address destination address
+     * @param request request to cache response for, {@code null} if response is already cached
+     * @param data    encoded response
+     */
+    private record Response(SocketAddress address, ByteBuffer request, ByteBuffer data) {
+    }
+}
@@ -0,0 +1,64 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+class HelloUDPNonblockingServerTest {
+    private static final int PORT = 28881;
+    /**
+     * Maximum UDP payload over IPv4, so response to request of this size can't be sent.
+     */
+    private static final int MAX_PAYLOAD = 65507;
+    private static final int THREADS = 1;
+    /**
+     * More failing responses than server keeps pending for one thread.
+     */
+    private static final int FAILING = 100;
+    private static final long WAIT_MILLIS = 5000;
+
+    @Test
+    @DisplayName("responses that can't be sent are dropped")
+    void sendFailure() throws IOException, InterruptedException {
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("127.0.0.1"), PORT);
+        try (HelloUDPNonblockingServer server = new HelloUDPNonblockingServer();
+             DatagramSocket socket = new DatagramSocket()) {
+            server.start(PORT, THREADS);
+            final byte[] oversized = new byte[MAX_PAYLOAD];
+            for (int i = 1; i <= FAILING; i++) {
+                socket.send(new DatagramPacket(oversized, oversized.length, address));
+                final long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+                while (server.getMetrics().getErrors() < i && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(1);
+                }
+                Assertions.assertEquals(i, server.getMetrics().getErrors(), "send failure should be counted");
+            }
+            Assertions.assertEquals(0, server.getMetrics().getQueueDepth());
+            Assertions.assertEquals("Hello, request", request(socket, address, "request"));
+        }
+    }
+
+    private static String request(DatagramSocket socket, InetSocketAddress address, String request) throws IOException {
+        final byte[] data = request.getBytes(StandardCharsets.UTF_8);
+        final DatagramPacket response = new DatagramPacket(new byte[MAX_PAYLOAD], MAX_PAYLOAD);
+        socket.setSoTimeout(100);
+        final long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (true) {
+            socket.send(new DatagramPacket(data, data.length, address));
+            try {
+                socket.receive(response);
+                return new String(response.getData(), response.getOffset(), response.getLength(), StandardCharsets.UTF_8);
+            } catch (SocketTimeoutException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
@@ -6,48 +6,104 @@ import info.kgeorgiy.java.advanced.hello.HelloServer;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
-import java.net.SocketTimeoutException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.IntStream;
 
 /**
  * Implementation for {@link HelloServer} interface.
+ * Optionally opens one socket per worker thread with {@code SO_REUSEPORT},
+ * so the kernel spreads incoming packets between per-socket receive queues.
+ * Workers of a socket wait for packets on its shared {@link Selector} and receive them without blocking,
+ * so they are woken up by {@link #drain} and see when the socket queue is empty.
+ * Running server may {@link #takeOver hand its sockets over} to a new instance without closing them,
+ * so no packet is lost during restart.
  *
  * @author Ponomarenko Ilya
  */
 public class HelloUDPServer implements HelloServer {
-    private static final String USAGE = "HelloUDPClient <port> <threads>";
+    private static final String USAGE = "HelloUDPServer <port> <threads> [receiveBuffer [reusePort]]";
+    /**
+     * Time in milliseconds for workers to empty socket queues after drain deadline.
+     */
+    private static final int DISCARD_TIME = 100;
+    /**
+     * Time in seconds to drain the server stopped from command line.
+     */
+    private static final long DRAIN_TIMEOUT = 1;
+    private static final int LOG_LIMIT = 10;
+    private final LongAdder dropped = new LongAdder();
+    private final HelloMetrics metrics = new HelloMetrics();
+    private final RateLimitedLog log = new RateLimitedLog(LOG_LIMIT);
+    private volatile boolean draining;
+    private volatile long drainDeadline;
+    /**
+     * Whether sockets were taken over by another server, so workers stop and sockets are left open.
+     */
+    private volatile boolean handedOver;
+    private final boolean reusePort;
+    private final int receiveBufferSize;
     private ExecutorService executorService;
-    private DatagramSocket socket;
-    private int size;
+    private List<Shard> shards = List.of();
 
+    /**
+     * Creates a server with one socket shared by all worker threads and default receive buffer size.
+     */
+    public HelloUDPServer() {
+        this(false, 0);
+    }
+
+    /**
+     * Creates a server with the given socket options.
+     *
+     * @param reusePort         open one {@code SO_REUSEPORT} socket per worker thread, if platform supports it
+     * @param receiveBufferSize socket receive buffer size ({@code SO_RCVBUF}), {@code 0} for system default.
+     *                          Datagram buffers of workers do not depend on it
+     */
+    public HelloUDPServer(boolean reusePort, int receiveBufferSize) {
+        this.reusePort = reusePort;
+        this.receiveBufferSize = receiveBufferSize;
+    }
 
     /**
      * Main method for {@link HelloUDPServer}.
-     * Usage: {@code HelloUDPServer <port> <threads>}
+     * Usage: {@code HelloUDPServer <port> <threads> [receiveBuffer [reusePort]]}
      * <p>
-     * {@code port} - port to send requests to
-     * {@code threads} - number of threads to send requests from
+     * {@code port} - port to receive requests on
+     * {@code threads} - number of threads to handle requests
+     * {@code receiveBuffer} - socket receive buffer size, system default by default
+     * {@code reusePort} - {@code true} to open one socket per thread, {@code false} by default
      *
      * @param args command line arguments
      */
     public static void main(String[] args) {
-        if (!Utils.checkArgs(args, 2, USAGE) || !Utils.checkIntegers(args, 0, 1)) {
+        if (!Utils.checkArgs(args, 2, 4, USAGE) || !Utils.checkIntegers(args, 0, 1)) {
             return;
         }
         int port = Integer.parseInt(args[0]);
         int threads = Integer.parseInt(args[1]);
-        try (HelloUDPServer server = new HelloUDPServer();
+        int receiveBufferSize = Utils.parseOrDefault(args, 2, 0, "receiveBuffer");
+        boolean reusePort = args.length > 3 && Boolean.parseBoolean(args[3]);
+        try (HelloUDPServer server = new HelloUDPServer(reusePort, receiveBufferSize);
              BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
             server.start(port, threads);
-            while (!reader.readLine().equals("stop")) {
+            String line;
+            while ((line = reader.readLine()) != null && !line.equals("stop")) {
                 System.out.println("Type 'stop' if you want to stop the server");
             }
+            System.out.println("Dropped: " + server.drain(DRAIN_TIMEOUT, TimeUnit.SECONDS));
         } catch (IOException e) {
             System.err.println("Error: " + e.getMessage());
         }
@@ -55,33 +111,262 @@ public class HelloUDPServer implements HelloServer {
 
     @Override
     public void start(int port, int threads) {
+        final boolean shard = reusePort && isReusePortSupported();
+        final List<DatagramChannel> opened = new ArrayList<>();
+        try {
+            opened.add(open(port, shard));
+            final int boundPort = ((InetSocketAddress) opened.get(0).getLocalAddress()).getPort();
+            for (int i = 1; i < (shard ? threads : 0); i++) {
+                opened.add(open(boundPort, true));
+            }
+        } catch (IOException e) {
+            opened.forEach(HelloUDPServer::close);
+            System.err.println("Error: " + e.getMessage());
+            return;
+        }
+        if (!start(opened, threads)) {
+            opened.forEach(HelloUDPServer::close);
+        }
+    }
+
+    /**
+     * Starts the server on sockets of the running server, instead of opening new ones.
+     * Sockets are never closed, so packets queued in them are answered by this server.
+     * Previous server should be {@link #drain drained} afterwards, its workers stop at once.
+     *
+     * @param previous server to take sockets of
+     * @param threads  number of threads to handle requests
+     */
+    public void takeOver(HelloUDPServer previous, int threads) {
+        final List<DatagramChannel> channels = previous.shards.stream().map(Shard::channel).toList();
+        if (channels.isEmpty()) {
+            System.err.println("Error: server to take over is not running");
+            return;
+        }
+        if (start(channels, threads)) {
+            previous.handedOver = true;
+            previous.shards.forEach(shard -> shard.selector().wakeup());
+        }
+    }
+
+    private boolean start(List<DatagramChannel> channels, int threads) {
+        final List<Shard> created = new ArrayList<>();
+        try {
+            for (DatagramChannel channel : channels) {
+                final Selector selector = Selector.open();
+                created.add(new Shard(channel, selector, new AtomicInteger()));
+                channel.register(selector, SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            created.forEach(shard -> close(shard.selector()));
+            System.err.println("Error: " + e.getMessage());
+            return false;
+        }
+        shards = created;
         executorService = Executors.newFixedThreadPool(threads);
+        metrics.register("HelloUDPServer");
+        IntStream.range(0, threads).forEach(i -> created.get(i % created.size()).workers().incrementAndGet());
+        IntStream.range(0, threads).forEach(i -> executorService.execute(() -> listen(created.get(i % created.size()))));
+        return true;
+    }
+
+    private static boolean isReusePortSupported() {
+        try (DatagramSocket socket = new DatagramSocket(null)) {
+            if (socket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                return true;
+            }
+        } catch (SocketException ignored) {
+        }
+        System.err.println("Warning: SO_REUSEPORT is not supported, using one socket");
+        return false;
+    }
+
+    private DatagramChannel open(int port, boolean shard) throws IOException {
+        final DatagramChannel channel = DatagramChannel.open();
+        try {
+            if (shard) {
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            if (receiveBufferSize > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferSize);
+            }
+            channel.bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+            return channel;
+        } catch (IOException e) {
+            close(channel);
+            throw e;
+        }
+    }
+
+    /**
+     * Answers requests on the socket until the server is closed, drained or handed over.
+     * The last worker of the socket closes it, unless it was handed over,
+     * so replies of other workers are never cut off.
+     */
+    private void listen(Shard shard) {
         try {
-            socket = new DatagramSocket(port);
-            size = socket.getReceiveBufferSize();
-            IntStream.range(0, threads).forEach(i -> executorService.execute(this::listen));
-        } catch (SocketException e) {
+            new Worker(shard.channel(), shard.selector()).listen();
+        } finally {
+            if (shard.workers().decrementAndGet() == 0) {
+                close(shard.selector());
+                if (!handedOver) {
+                    close(shard.channel());
+                }
+            } else {
+                // Other worker may wait for the selector, it should notice draining as well
+                shard.selector().wakeup();
+            }
+        }
+    }
+
+    private static void close(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
             System.err.println("Error: " + e.getMessage());
         }
     }
 
-    private void listen() {
-        DatagramPacket request = new DatagramPacket(new byte[size], size);
-        while (!socket.isClosed() && !Thread.currentThread().isInterrupted()) {
-            try {
-                socket.receive(request);
-                String response = "Hello, " + Requests.packetToString(request);
-                Requests.send(socket, request.getSocketAddress(), response);
-            } catch (SocketTimeoutException ignored) {
-            } catch (IOException e) {
-                System.err.println("Error: " + e.getMessage());
+    /**
+     * Gracefully stops the server.
+     * Workers are woken up and empty socket queues without blocking: packets received before the deadline
+     * are answered, later ones are counted as dropped, and the last worker of the socket closes it once it is empty.
+     * Server that was {@link #takeOver taken over} stops at once and drops nothing, as its sockets stay open.
+     *
+     * @param timeout maximum time to drain
+     * @param unit    time unit of timeout
+     * @return number of packets dropped without response
+     */
+    public long drain(long timeout, TimeUnit unit) {
+        if (executorService == null) {
+            return 0;
+        }
+        drainDeadline = System.nanoTime() + unit.toNanos(timeout);
+        draining = true;
+        shards.forEach(shard -> shard.selector().wakeup());
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(unit.toMillis(timeout) + DISCARD_TIME, TimeUnit.MILLISECONDS)) {
+                System.err.println("Error: socket queues were not emptied in time");
+                close();
             }
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
         }
+        metrics.unregister();
+        return dropped.sum();
+    }
+
+    /**
+     * Returns server metrics.
+     *
+     * @return server metrics
+     */
+    public HelloMetricsMBean getMetrics() {
+        return metrics;
     }
 
     @Override
     public void close() {
-        socket.close();
-        Utils.shutdown(executorService, 10, TimeUnit.MILLISECONDS);
+        for (Shard shard : shards) {
+            close(shard.selector());
+            if (!handedOver) {
+                close(shard.channel());
+            }
+        }
+        metrics.unregister();
+        if (executorService != null) {
+            Utils.shutdown(executorService, 10, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Socket with selector shared by its workers.
+     *
+     * @param channel  socket
+     * @param selector selector for packets arrival
+     * @param workers  number of running workers of the socket
+     */
+    private record Shard(DatagramChannel channel, Selector selector, AtomicInteger workers) {
+    }
+
+    private class Worker {
+        private final DatagramChannel channel;
+        private final Selector selector;
+        private final ByteBuffer request = ByteBuffer.allocate(Requests.MAX_DATAGRAM);
+        private final ByteBuffer response = ByteBuffer.allocate(Requests.RESPONSE_PREFIX.length + Requests.MAX_DATAGRAM);
+        /**
+         * Selector to wait for free space in socket send buffer, opened when it is first full.
+         */
+        private Selector writeSelector;
+
+        Worker(DatagramChannel channel, Selector selector) {
+            this.channel = channel;
+            this.selector = selector;
+        }
+
+        void listen() {
+            try {
+                while (!handedOver) {
+                    final SocketAddress address;
+                    try {
+                        request.clear();
+                        address = channel.receive(request);
+                    } catch (ClosedChannelException e) {
+                        return;
+                    } catch (IOException e) {
+                        metrics.errors.increment();
+                        log.error(e.getMessage());
+                        continue;
+                    }
+                    if (address == null) {
+                        if (draining) {
+                            // Socket queue is empty
+                            return;
+                        }
+                        // Selects one at a time, so only one worker of the socket waits in the kernel
+                        selector.select(key -> {
+                        });
+                        continue;
+                    }
+                    metrics.received.increment();
+                    if (draining && System.nanoTime() - drainDeadline >= 0) {
+                        dropped.increment();
+                        continue;
+                    }
+                    Requests.putResponse(request.flip(), response);
+                    try {
+                        send(address);
+                        metrics.sent.increment();
+                    } catch (ClosedChannelException e) {
+                        dropped.increment();
+                        return;
+                    } catch (IOException e) {
+                        metrics.errors.increment();
+                        log.error(e.getMessage());
+                    }
+                }
+            } catch (ClosedSelectorException ignored) {
+            } catch (IOException e) {
+                System.err.println("Error: " + e.getMessage());
+            } finally {
+                if (writeSelector != null) {
+                    close(writeSelector);
+                }
+            }
+        }
+
+        private void send(SocketAddress address) throws IOException {
+            while (channel.send(response, address) == 0) {
+                if (writeSelector == null) {
+                    writeSelector = Selector.open();
+                    channel.register(writeSelector, SelectionKey.OP_WRITE);
+                }
+                writeSelector.select();
+                writeSelector.selectedKeys().clear();
+            }
+        }
     }
 }
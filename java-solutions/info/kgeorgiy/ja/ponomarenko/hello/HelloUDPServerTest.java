@@ -0,0 +1,125 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+class HelloUDPServerTest {
+    private static final int THREADS = 4;
+    private static final int REQUESTS = 200;
+    private static final int RECEIVE_BUFFER = 1 << 20;
+    private static final int RECEIVE_TIMEOUT = 500;
+
+    @Test
+    @DisplayName("drain answers queued requests")
+    void drain() throws IOException {
+        for (boolean reusePort : new boolean[]{false, true}) {
+            final int port = reusePort ? 28892 : 28891;
+            try (HelloUDPServer server = new HelloUDPServer(reusePort, RECEIVE_BUFFER);
+                 DatagramSocket socket = socket()) {
+                server.start(port, THREADS);
+                send(socket, port, 0, REQUESTS);
+                Assertions.assertEquals(0, server.drain(1, TimeUnit.SECONDS));
+                Assertions.assertEquals(REQUESTS, receive(socket).size());
+                Assertions.assertEquals(REQUESTS, server.getMetrics().getReceived());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("drain after deadline counts dropped requests")
+    void drainDeadline() throws IOException {
+        try (HelloUDPServer server = new HelloUDPServer(true, RECEIVE_BUFFER);
+             DatagramSocket socket = socket()) {
+            server.start(28893, THREADS);
+            send(socket, 28893, 0, REQUESTS);
+            final long dropped = server.drain(0, TimeUnit.SECONDS);
+            final int answered = receive(socket).size();
+            Assertions.assertEquals(server.getMetrics().getReceived(), answered + dropped);
+        }
+    }
+
+    @Test
+    @DisplayName("drain wakes idle workers")
+    void drainIdle() {
+        try (HelloUDPServer server = new HelloUDPServer(true, 0)) {
+            server.start(28894, THREADS);
+            final long start = System.nanoTime();
+            Assertions.assertEquals(0, server.drain(1, TimeUnit.SECONDS));
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500),
+                    "idle workers should stop without waiting for timeout");
+        }
+    }
+
+    @Test
+    @DisplayName("handover loses no requests")
+    void takeOver() throws IOException, InterruptedException {
+        for (boolean reusePort : new boolean[]{false, true}) {
+            final int port = reusePort ? 28896 : 28895;
+            try (HelloUDPServer previous = new HelloUDPServer(reusePort, RECEIVE_BUFFER);
+                 HelloUDPServer next = new HelloUDPServer(reusePort, RECEIVE_BUFFER);
+                 DatagramSocket socket = socket()) {
+                previous.start(port, THREADS);
+                final Thread sender = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < REQUESTS; i += 10) {
+                            send(socket, port, i, i + 10);
+                            Thread.sleep(1);
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                sender.start();
+                Thread.sleep(5);
+                next.takeOver(previous, THREADS);
+                Assertions.assertEquals(0, previous.drain(1, TimeUnit.SECONDS));
+                sender.join();
+                Assertions.assertEquals(0, next.drain(1, TimeUnit.SECONDS));
+                Assertions.assertEquals(REQUESTS, receive(socket).size());
+                Assertions.assertEquals(REQUESTS,
+                        previous.getMetrics().getReceived() + next.getMetrics().getReceived());
+            }
+        }
+    }
+
+    private static DatagramSocket socket() throws IOException {
+        final DatagramSocket socket = new DatagramSocket();
+        socket.setReceiveBufferSize(RECEIVE_BUFFER);
+        socket.setSoTimeout(RECEIVE_TIMEOUT);
+        return socket;
+    }
+
+    private static void send(DatagramSocket socket, int port, int from, int to) throws IOException {
+        final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port);
+        for (int i = from; i < to; i++) {
+            final byte[] data = ("request" + i).getBytes(StandardCharsets.UTF_8);
+            socket.send(new DatagramPacket(data, data.length, address));
+        }
+    }
+
+    private static Set<String> receive(DatagramSocket socket) throws IOException {
+        final Set<String> responses = new HashSet<>();
+        final DatagramPacket packet = new DatagramPacket(new byte[Requests.MAX_DATAGRAM], Requests.MAX_DATAGRAM);
+        while (true) {
+            try {
+                socket.receive(packet);
+            } catch (SocketTimeoutException e) {
+                return responses;
+            }
+            final String response = new String(packet.getData(), packet.getOffset(), packet.getLength(),
+                    StandardCharsets.UTF_8);
+            Assertions.assertTrue(response.startsWith("Hello, request"), response);
+            Assertions.assertTrue(responses.add(response), "duplicate " + response);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Error log printing at most given number of messages per second.
+ * Number of suppressed messages is printed when the next second starts.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class RateLimitedLog {
+    private static final long PERIOD = TimeUnit.SECONDS.toNanos(1);
+    private final int perSecond;
+    private final AtomicLong periodStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger printed = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Creates a log with the given limit.
+     *
+     * @param perSecond maximum number of messages printed per second
+     */
+    public RateLimitedLog(int perSecond) {
+        this.perSecond = perSecond;
+    }
+
+    /**
+     * Prints error message, unless limit for current second is exceeded.
+     * Does not block: once the limit is reached, a message costs two reads and a striped counter increment.
+     *
+     * @param message message to print
+     */
+    public void error(String message) {
+        final long now = System.nanoTime();
+        final long start = periodStart.get();
+        if (now - start >= PERIOD && periodStart.compareAndSet(start, now)) {
+            printed.set(0);
+            final long lastSuppressed = suppressed.sumThenReset();
+            if (lastSuppressed > 0) {
+                System.err.println("Error: " + lastSuppressed + " messages suppressed");
+            }
+        }
+        if (printed.get() >= perSecond || printed.getAndIncrement() >= perSecond) {
+            suppressed.increment();
+            return;
+        }
+        System.err.println("Error: " + message);
+    }
+}
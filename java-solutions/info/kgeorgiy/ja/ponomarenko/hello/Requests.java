@@ -4,49 +4,208 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 /**
  * Class for working with requests.
+ * Requests and responses are encoded directly into reusable {@link ByteBuffer buffers},
+ * so sending and receiving packets does not allocate memory.
  *
  * @author Ponomarenko Ilya
  */
 public class Requests {
     /**
-     * Receives a packet from the socket.
+     * Encoded prefix of response to a request.
+     */
+    public static final byte[] RESPONSE_PREFIX = "Hello, ".getBytes(StandardCharsets.UTF_8);
+    /**
+     * Maximum number of bytes needed to encode an {@code int}.
+     */
+    public static final int MAX_INT_LENGTH = 11;
+    /**
+     * Maximum size of UDP datagram payload, so buffers of this size are never truncated.
+     */
+    public static final int MAX_DATAGRAM = 65535;
+
+    /**
+     * Receives a packet from the socket into the buffer.
+     * After the call buffer contains received data between position and limit.
      *
      * @param socket socket to receive from
-     * @param size   size of the packet
-     * @return received packet
+     * @param packet packet to reuse, sender address is stored in it
+     * @param buffer heap buffer to receive into
      * @throws IOException if an I/O error occurs
      */
-    public static DatagramPacket receive(DatagramSocket socket, int size) throws IOException {
-        DatagramPacket packet = new DatagramPacket(new byte[size], size);
+    public static void receive(DatagramSocket socket, DatagramPacket packet, ByteBuffer buffer) throws IOException {
+        packet.setData(buffer.array(), buffer.arrayOffset(), buffer.capacity());
         socket.receive(packet);
-        return packet;
+        buffer.clear().limit(packet.getLength());
     }
 
     /**
-     * Converts a packet to a string.
+     * Sends data from buffer to the given address.
      *
-     * @param packet packet to convert
-     * @return string representation of the packet
+     * @param socket        socket to send to
+     * @param packet        packet to reuse
+     * @param data          heap buffer with data between position and limit
+     * @param socketAddress address to send to
+     * @throws IOException if an I/O error occurs
      */
-    public static String packetToString(DatagramPacket packet) {
-        return new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.UTF_8);
+    public static void send(DatagramSocket socket, DatagramPacket packet, ByteBuffer data, SocketAddress socketAddress) throws IOException {
+        packet.setSocketAddress(socketAddress);
+        send(socket, packet, data);
     }
 
     /**
-     * Sends a request to the socket.
+     * Sends data from buffer to the address stored in packet.
      *
-     * @param socket        socket to send to
-     * @param socketAddress address to send to
-     * @param request       request to send
+     * @param socket socket to send to
+     * @param packet packet to reuse, holding destination address
+     * @param data   heap buffer with data between position and limit
      * @throws IOException if an I/O error occurs
      */
-    public static void send(DatagramSocket socket, SocketAddress socketAddress, String request) throws IOException {
-        DatagramPacket packet = new DatagramPacket(request.getBytes(), request.length(), socketAddress);
-        packet.setData(request.getBytes(StandardCharsets.UTF_8));
+    public static void send(DatagramSocket socket, DatagramPacket packet, ByteBuffer data) throws IOException {
+        packet.setData(data.array(), data.arrayOffset() + data.position(), data.remaining());
         socket.send(packet);
     }
+
+    /**
+     * Encodes request {@code prefix + thread + "_" + request} into the buffer.
+     * After the call buffer is ready to be read.
+     *
+     * @param buffer  buffer to encode into
+     * @param prefix  encoded request prefix
+     * @param thread  thread number
+     * @param request request number
+     */
+    public static void putRequest(ByteBuffer buffer, byte[] prefix, int thread, int request) {
+        buffer.clear().put(prefix);
+        putInt(buffer, thread);
+        buffer.put((byte) '_');
+        putInt(buffer, request);
+        buffer.flip();
+    }
+
+    /**
+     * Encodes response to request into the buffer.
+     * Request buffer is left unchanged, response buffer is ready to be read.
+     *
+     * @param request  buffer with request between position and limit
+     * @param response buffer to encode into
+     */
+    public static void putResponse(ByteBuffer request, ByteBuffer response) {
+        final int length = request.remaining();
+        response.clear().put(RESPONSE_PREFIX);
+        response.put(response.position(), request, request.position(), length);
+        response.position(response.position() + length).flip();
+    }
+
+    /**
+     * Checks that response is a correct response to the request.
+     * Positions of both buffers are left unchanged.
+     *
+     * @param response buffer with response between position and limit
+     * @param request  buffer with request between position and limit
+     * @return true if response is {@code "Hello, " + request}, false otherwise
+     */
+    public static boolean isResponse(ByteBuffer response, ByteBuffer request) {
+        final int length = request.remaining();
+        if (response.remaining() != RESPONSE_PREFIX.length + length) {
+            return false;
+        }
+        final int start = response.position();
+        for (int i = 0; i < RESPONSE_PREFIX.length; i++) {
+            if (response.get(start + i) != RESPONSE_PREFIX[i]) {
+                return false;
+            }
+        }
+        final int offset = start + RESPONSE_PREFIX.length;
+        for (int i = 0; i < length; i++) {
+            if (response.get(offset + i) != request.get(request.position() + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns request number of response {@code header + number}.
+     * Header is {@code "Hello, " + prefix + thread + "_"} encoded, number should have no leading zeros.
+     * Position of the buffer is left unchanged.
+     *
+     * @param response buffer with response between position and limit
+     * @param header   encoded response header
+     * @return request number, {@code -1} if response does not match header
+     */
+    public static int parseRequestNumber(ByteBuffer response, byte[] header) {
+        final int start = response.position();
+        final int length = response.remaining() - header.length;
+        if (length <= 0 || length >= MAX_INT_LENGTH - 1) {
+            return -1;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (response.get(start + i) != header[i]) {
+                return -1;
+            }
+        }
+        final int offset = start + header.length;
+        if (length > 1 && response.get(offset) == '0') {
+            return -1;
+        }
+        int number = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final int digit = response.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    /**
+     * Encodes header of responses to requests of the given thread.
+     *
+     * @param prefix encoded request prefix
+     * @param thread thread number
+     * @return encoded {@code "Hello, " + prefix + thread + "_"}
+     */
+    public static byte[] responseHeader(byte[] prefix, int thread) {
+        final ByteBuffer buffer = ByteBuffer.allocate(RESPONSE_PREFIX.length + prefix.length + MAX_INT_LENGTH + 1);
+        buffer.put(RESPONSE_PREFIX).put(prefix);
+        putInt(buffer, thread);
+        buffer.put((byte) '_').flip();
+        final byte[] header = new byte[buffer.remaining()];
+        buffer.get(header);
+        return header;
+    }
+
+    /**
+     * Converts buffer content to a string.
+     * Should not be used on hot path.
+     *
+     * @param buffer heap buffer with data between position and limit
+     * @return string representation of the buffer
+     */
+    public static String toString(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+    }
+
+    private static void putInt(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            buffer.put(Integer.toString(value).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        int length = 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        final int start = buffer.position();
+        for (int i = start + length - 1; i >= start; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(start + length);
+    }
 }
@@ -0,0 +1,57 @@
+package info.kgeorgiy.ja.ponomarenko.hello;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip time estimator for one destination.
+ * Computes retransmission timeout from smoothed round-trip time and its variation
+ * as described in RFC 6298, with exponential backoff and random jitter for retransmissions.
+ * Samples of retransmitted requests should not be passed to the estimator.
+ *
+ * @author Ponomarenko Ilya
+ */
+public class RttEstimator {
+    private static final long MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+    private long smoothed;
+    private long variation;
+    private volatile long timeout;
+
+    /**
+     * Creates an estimator with the given initial timeout.
+     *
+     * @param initialTimeout timeout before the first sample, in nanoseconds
+     */
+    public RttEstimator(long initialTimeout) {
+        timeout = initialTimeout;
+    }
+
+    /**
+     * Updates estimation with a round-trip time sample.
+     *
+     * @param rtt round-trip time of not retransmitted request, in nanoseconds
+     */
+    public synchronized void sample(long rtt) {
+        if (smoothed == 0) {
+            smoothed = rtt;
+            variation = rtt / 2;
+        } else {
+            variation = (3 * variation + Math.abs(smoothed - rtt)) / 4;
+            smoothed = (7 * smoothed + rtt) / 8;
+        }
+        timeout = Math.min(MAX_TIMEOUT, Math.max(MIN_TIMEOUT, smoothed + 4 * variation));
+    }
+
+    /**
+     * Returns timeout for the given attempt.
+     * Timeout is doubled for each retransmission and increased by up to a quarter at random.
+     *
+     * @param attempt number of previous attempts to send request
+     * @return timeout in nanoseconds
+     */
+    public long timeout(int attempt) {
+        final long base = Math.min(MAX_TIMEOUT, timeout << Math.min(attempt, 16));
+        return base + ThreadLocalRandom.current().nextLong(base / 4 + 1);
+    }
+}
@@ -4,17 +4,35 @@ import info.kgeorgiy.ja.ponomarenko.base.Utils;
 import info.kgeorgiy.java.advanced.implementor.ImplerException;
 import info.kgeorgiy.java.advanced.implementor.JarImpler;
 
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.CodeSource;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.jar.JarOutputStream;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
@@ -22,12 +40,14 @@ import java.util.zip.ZipEntry;
 /**
  * Class for generating implementation of given class.
  * Can generate implementation of class and jar file with implementation.
+ * Compiler and its standard file manager are created once and reused by {@link #implementJar},
+ * close implementor to release the file manager.
  *
  * @author Ponomarenko Ilya
  *
  * @see info.kgeorgiy.java.advanced.implementor.JarImpler
  */
-public class Implementor implements JarImpler {
+public class Implementor implements JarImpler, AutoCloseable {
     /**
      * Line separator for generated files.
      */
@@ -40,8 +60,15 @@ public class Implementor implements JarImpler {
      * File separator for convert file path from package.
      */
     private static final char FILE_SEP = '/';
-    public static final String TEMP_DIR = "temp";
     private static final String USAGE = "Implementor <class> <path>";
+    /**
+     * System compiler, {@code null} until the first compilation.
+     */
+    private JavaCompiler compiler;
+    /**
+     * Standard file manager shared by compilations, {@code null} until the first compilation or after close.
+     */
+    private StandardJavaFileManager standardFileManager;
 
     /**
      * Default constructor.
@@ -66,11 +93,12 @@ public class Implementor implements JarImpler {
             }
             var arg1 = Class.forName(args[start]);
             var arg2 = Path.of(args[start + 1]);
-            var implementor = new Implementor();
-            if (start == 0) {
-                implementor.implement(arg1, arg2);
-            } else {
-                implementor.implementJar(arg1, arg2);
+            try (var implementor = new Implementor()) {
+                if (start == 0) {
+                    implementor.implement(arg1, arg2);
+                } else {
+                    implementor.implementJar(arg1, arg2);
+                }
             }
         } catch (ImplerException | ClassNotFoundException e) {
             System.out.println(e.getMessage());
@@ -160,30 +188,65 @@ public class Implementor implements JarImpler {
     }
 
     /**
-     * Compiles given token to java .class file.
+     * Compiles implementation of given token in memory.
+     * Compilations are serialized, as they share the standard file manager.
      *
-     * @param token     given token to compile.
-     * @param path      where to compile token.
-     * @param className java filename of token.
+     * @param token     given token to compile implementation for.
+     * @param className binary name of implementation.
+     * @param source    source code of implementation.
+     * @return class files by binary names of compiled classes.
      * @throws ImplerException if compilation error or can't get uri of token code source.
      */
-    private static void compile(Class<?> token, Path path, String className) throws ImplerException {
-        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-        Path classPath;
+    private synchronized Map<String, byte[]> compile(Class<?> token, String className, String source) throws ImplerException {
+        if (compiler == null) {
+            compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                throw new ImplerException("Can't find compiler");
+            }
+        }
+        if (standardFileManager == null) {
+            standardFileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        }
+        CodeSource codeSource = token.getProtectionDomain().getCodeSource();
         try {
-            classPath = Path.of(token.getProtectionDomain().getCodeSource().getLocation().toURI());
+            // Default classpath for tokens without code source
+            standardFileManager.setLocationFromPaths(StandardLocation.CLASS_PATH,
+                    codeSource == null ? null : List.of(Path.of(codeSource.getLocation().toURI())));
         } catch (URISyntaxException e) {
             throw new ImplerException("URISyntaxException", e);
+        } catch (IOException e) {
+            throw new ImplerException("Can't set classpath", e);
         }
-        if (compiler == null) {
-            throw new ImplerException("Can't find compiler");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (MemoryFileManager fileManager = new MemoryFileManager(standardFileManager)) {
+            boolean success = compiler.getTask(null, fileManager, diagnostics, null, null,
+                    List.of(new MemorySource(className, source))).call();
+            if (!success) {
+                throw new ImplerException("Can't compile: " + diagnostics.getDiagnostics().stream()
+                        .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                        .map(diagnostic -> diagnostic.getMessage(null))
+                        .collect(Collectors.joining("; ")));
+            }
+            return fileManager.getClasses();
         }
-        int code = compiler.run(null, null, null, "-cp",
-                classPath.toString(),
-                path.resolve(className) + ".java",
-                "-encoding", "UTF-8");
-        if (code != 0) {
-            throw new ImplerException("Can't compile");
+    }
+
+    /**
+     * Closes the standard file manager shared by compilations, if it was created.
+     *
+     * @throws ImplerException if file manager can't be closed.
+     */
+    @Override
+    public synchronized void close() throws ImplerException {
+        if (standardFileManager == null) {
+            return;
+        }
+        try {
+            standardFileManager.close();
+        } catch (IOException e) {
+            throw new ImplerException("Can't close file manager", e);
+        } finally {
+            standardFileManager = null;
         }
     }
 
@@ -244,24 +307,132 @@ public class Implementor implements JarImpler {
      */
     @Override
     public void implementJar(Class<?> token, Path jarFile) throws ImplerException {
-        Path tmpDir = null;
+        assertCanImplement(token);
+        StringWriter source = new StringWriter();
+        try {
+            implementClass(token, source);
+        } catch (IOException e) {
+            throw new ImplerException("Exception while generating source", e);
+        }
+        String packageName = token.getPackageName();
+        String className = packageName.isEmpty() ? getImplName(token) : packageName + "." + getImplName(token);
+        Map<String, byte[]> classes = compile(token, className, source.toString());
         try {
-            tmpDir = Files.createTempDirectory(jarFile.getParent(), TEMP_DIR);
-            implement(token, tmpDir);
-            String classFilename = token.getPackage().getName().replace('.', FILE_SEP) + FILE_SEP + getImplName(token);
-            compile(token, tmpDir, classFilename);
-            try (JarOutputStream writer = new JarOutputStream(Files.newOutputStream(jarFile))) {
-                writer.putNextEntry(new ZipEntry(classFilename + ".class"));
-                Files.copy(Path.of(tmpDir.resolve(classFilename) + ".class"), writer);
-            } catch (final IOException e) {
-                throw new ImplerException("Compression to jar failed", e);
+            Path parent = jarFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
             }
         } catch (IOException e) {
-            throw new ImplerException("Can't create temp folder", e);
-        } finally {
-            if (tmpDir != null) {
-                tmpDir.toFile().deleteOnExit();
+            throw new ImplerException("Can't create path to jar file", e);
+        }
+        try (JarOutputStream writer = new JarOutputStream(Files.newOutputStream(jarFile))) {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                writer.putNextEntry(new ZipEntry(entry.getKey().replace('.', FILE_SEP) + ".class"));
+                writer.write(entry.getValue());
+                writer.closeEntry();
             }
+        } catch (final IOException e) {
+            throw new ImplerException("Compression to jar failed", e);
+        }
+    }
+
+    /**
+     * Source file with code held in memory.
+     */
+    private static class MemorySource extends SimpleJavaFileObject {
+        /**
+         * Source code.
+         */
+        private final String source;
+
+        /**
+         * Creates source file of given class.
+         *
+         * @param className binary name of class.
+         * @param source    source code.
+         */
+        MemorySource(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', FILE_SEP) + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    /**
+     * Class file written to memory.
+     */
+    private static class MemoryClass extends SimpleJavaFileObject {
+        /**
+         * Class file bytes.
+         */
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        /**
+         * Creates class file of given class.
+         *
+         * @param className binary name of class.
+         */
+        MemoryClass(String className) {
+            super(URI.create("mem:///" + className.replace('.', FILE_SEP) + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    /**
+     * File manager reading classpath with standard file manager and keeping compiled classes in memory.
+     * Created for each compilation, closing it leaves the shared standard file manager open.
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        /**
+         * Compiled classes by binary names, in order of generation.
+         */
+        private final Map<String, MemoryClass> classes = new LinkedHashMap<>();
+
+        /**
+         * Creates file manager over given standard file manager.
+         *
+         * @param fileManager standard file manager.
+         */
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(
+                JavaFileManager.Location location,
+                String className,
+                JavaFileObject.Kind kind,
+                FileObject sibling
+        ) throws IOException {
+            if (kind != JavaFileObject.Kind.CLASS) {
+                return super.getJavaFileForOutput(location, className, kind, sibling);
+            }
+            MemoryClass file = new MemoryClass(className);
+            classes.put(className, file);
+            return file;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        /**
+         * Returns compiled classes.
+         *
+         * @return class file bytes by binary names of classes.
+         */
+        Map<String, byte[]> getClasses() {
+            Map<String, byte[]> result = new LinkedHashMap<>();
+            classes.forEach((name, file) -> result.put(name, file.bytes.toByteArray()));
+            return result;
         }
     }
 }
\ No newline at end of file
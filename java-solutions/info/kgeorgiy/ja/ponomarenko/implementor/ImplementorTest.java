@@ -0,0 +1,96 @@
+package info.kgeorgiy.ja.ponomarenko.implementor;
+
+import info.kgeorgiy.ja.ponomarenko.crawler.CrawlerMetricsMXBean;
+import info.kgeorgiy.ja.ponomarenko.crawler.PageScorer;
+import info.kgeorgiy.ja.ponomarenko.crawler.VisitedSet;
+import info.kgeorgiy.java.advanced.implementor.ImplerException;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarFile;
+
+class ImplementorTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("jar implementation is loadable and returns default values")
+    void implementJar() throws Exception {
+        try (Implementor implementor = new Implementor()) {
+            for (Class<?> token : List.of(PageScorer.class, VisitedSet.class, CrawlerMetricsMXBean.class)) {
+                final Path jar = directory.resolve("nested").resolve(token.getSimpleName() + ".jar");
+                implementor.implementJar(token, jar);
+                final Object instance = load(jar, token);
+                Assertions.assertTrue(token.isInstance(instance));
+            }
+        }
+        final Path jar = directory.resolve("scorer.jar");
+        try (Implementor implementor = new Implementor()) {
+            implementor.implementJar(PageScorer.class, jar);
+        }
+        try (JarFile file = new JarFile(jar.toFile())) {
+            Assertions.assertNotNull(file.getEntry("info/kgeorgiy/ja/ponomarenko/crawler/PageScorerImpl.class"));
+        }
+        final PageScorer scorer = (PageScorer) load(jar, PageScorer.class);
+        Assertions.assertEquals(0.0, scorer.score("http://a.com/", "a.com", 1, 0));
+        final VisitedSet set = (VisitedSet) load(directory.resolve("nested").resolve("VisitedSet.jar"), VisitedSet.class);
+        Assertions.assertFalse(set.add("http://a.com/"));
+        Assertions.assertEquals(0, set.bytes());
+    }
+
+    @Test
+    @DisplayName("implementor can be used after close")
+    void reuseAfterClose() throws Exception {
+        final Implementor implementor = new Implementor();
+        implementor.close();
+        implementor.implementJar(PageScorer.class, directory.resolve("first.jar"));
+        implementor.close();
+        implementor.close();
+        implementor.implementJar(PageScorer.class, directory.resolve("second.jar"));
+        implementor.close();
+        Assertions.assertTrue(load(directory.resolve("second.jar"), PageScorer.class) instanceof PageScorer);
+    }
+
+    @Test
+    @DisplayName("classes and private interfaces are not implemented")
+    void notInterface() throws ImplerException {
+        try (Implementor implementor = new Implementor()) {
+            for (Class<?> token : List.of(String.class, ImplementorTest.class, int.class, Hidden.class)) {
+                Assertions.assertThrows(ImplerException.class,
+                        () -> implementor.implementJar(token, directory.resolve("bad.jar")), token.getName());
+                Assertions.assertThrows(ImplerException.class,
+                        () -> implementor.implement(token, directory), token.getName());
+            }
+        }
+        Assertions.assertFalse(Files.exists(directory.resolve("bad.jar")));
+    }
+
+    @Test
+    @DisplayName("source implementation is written to package directory")
+    void implement() throws ImplerException, IOException {
+        try (Implementor implementor = new Implementor()) {
+            implementor.implement(PageScorer.class, directory);
+        }
+        final String source = Files.readString(
+                directory.resolve("info/kgeorgiy/ja/ponomarenko/crawler/PageScorerImpl.java"));
+        Assertions.assertTrue(source.contains("class PageScorerImpl implements " + PageScorer.class.getCanonicalName()),
+                source);
+    }
+
+    private static Object load(Path jar, Class<?> token) throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, token.getClassLoader())) {
+            final Class<?> impl = loader.loadClass(token.getName() + "Impl");
+            Assertions.assertTrue(token.isAssignableFrom(impl));
+            return impl.getConstructor().newInstance();
+        }
+    }
+
+    private interface Hidden {
+    }
+}